@@ -5,6 +5,7 @@ plugins {
     `maven-publish`
     signing
     kotlin("jvm") version "1.3.21"
+    id("me.champeau.gradle.jmh") version "0.4.8"
 }
 
 repositories {
@@ -38,6 +39,16 @@ tasks {
 }
 // << Unit Testing
 
+// >> Java Compatibility
+// The runtime needs Java 11+ (java.util.concurrent.Flow for fromPublisher, java.net.http for HttpFetch). Kotlin 1.3.21
+// can't target more than 1.8: the Kotlin classes keep jvmTarget 1.8 but are compiled against the JDK running the build,
+// which must be 11+ as well
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+// << Java Compatibility
+
 // >> Kotlin Compilation
 val compileKotlin: KotlinCompile by tasks
 compileKotlin.kotlinOptions {
@@ -20,3 +20,15 @@ dependencies {
 
     implementation(files("/src/vaadin/vaadin-mvu/build/libs/vaadin-mvu-0.3.1.jar"))
 }
+
+tasks.register<JavaExec>("benchmarkAsyncExecution") {
+    description = "Compares the AsyncExecution modes against the running PersonsRestServlet (start :appRun first)"
+    classpath = sourceSets["test"].runtimeClasspath
+    main = "mvu.sample.AsyncExecutionBenchmarkKt"
+}
+
+tasks.register<JavaExec>("benchmarkHttpFetch") {
+    description = "Compares the former LoadBar fetch with HttpFetch against the running PersonsRestServlet (start :appRun first)"
+    classpath = sourceSets["test"].runtimeClasspath
+    main = "mvu.sample.HttpFetchBenchmarkKt"
+}
@@ -1,9 +1,9 @@
 package mvu.sample;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.Map;
 import java.util.function.Function;
 
 import com.vaadin.data.Binder;
@@ -18,6 +18,7 @@ import mvu.support.Action;
 import mvu.support.BroadcastAction;
 import mvu.support.Dispatcher;
 import mvu.support.ModelViewBinderKt;
+import mvu.support.ReferenceData;
 import mvu.support.extra.BoundGrid;
 import mvu.support.extra.BoundLabel;
 
@@ -33,14 +34,39 @@ class HerosGrid {
 	/* MODEL
 	/* ************************************************************************************************************** */
 
+	private static final int MAX_SOURCES = 16;
+
+	private static final ReferenceData.Snapshot<List<Person>> NO_HEROS =
+			new ReferenceData<List<Person>>(Collections.emptyList()).snapshot();
+
+	/**
+	 * The loaded heros per source url, shared by the sessions which load from the same url (and only by those). The
+	 * url is typed in by the user, so only the most recently loaded sources are kept
+	 */
+	private static final Map<String, ReferenceData<List<Person>>> HEROS = new LinkedHashMap<String, ReferenceData<List<Person>>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ReferenceData<List<Person>>> eldest) {
+			return size() > MAX_SOURCES;
+		}
+	};
+
+	/**
+	 * Store the heros loaded from the url, the snapshot is the handle for the models
+	 */
+	static ReferenceData.Snapshot<List<Person>> loaded(String url, List<Person> heros) {
+		ReferenceData<List<Person>> source;
+		synchronized (HEROS) {
+			source = HEROS.computeIfAbsent(url, key -> new ReferenceData<>(Collections.emptyList()));
+		}
+		return source.set(Collections.unmodifiableList(heros));
+	}
+
 	static class Model {
 
-		final List<Person> heros;
+		final ReferenceData.Snapshot<List<Person>> heros;
 		final String status;
 		final Model.Builder builder;
 
-		ThreadPoolExecutor threadPoolExecutor = new ScheduledThreadPoolExecutor(5);
-
 		private Model(Model.Builder builder) {
 			this.builder = builder;
 			this.heros = builder.heros;
@@ -51,10 +77,8 @@ class HerosGrid {
 			return new Model.Builder();
 		}
 
-		static Model copy(Model oldModel, Model.Builder builder) {
-			Model newModel = new Model(builder);
-			newModel.threadPoolExecutor = oldModel.threadPoolExecutor;
-			return newModel;
+		static Model copy(Model.Builder builder) {
+			return new Model(builder);
 		}
 
 		static Model initialModel() {
@@ -63,10 +87,10 @@ class HerosGrid {
 		}
 
 		static class Builder {
-			List<Person> heros = new ArrayList<>();
+			ReferenceData.Snapshot<List<Person>> heros = NO_HEROS;
 			String status = "";
 
-			Model.Builder withHeros(List<Person> heros) {
+			Model.Builder withHeros(ReferenceData.Snapshot<List<Person>> heros) {
 				this.heros = heros;
 				return this;
 			}
@@ -109,13 +133,15 @@ class HerosGrid {
 		Component loadBar = LoadBar.view(dispatcher);
 
 		Grid<Person> herosGrid = BoundGrid.builder(binder, Person.class)
-				.withValueProvider(model -> model.heros)
-				.withValueProcessor(Function.identity())
+				.withValueProvider(model -> model.heros.getValue())
+				.withKey(person -> person.getFirstName() + " " + person.getLastName())
+				.withReadOnlyBinding()
 				.build();
 
 		Label statusLabel = BoundLabel.builder(binder, String.class)
 				.withValueProvider(model -> model.status)
 				.withValueProcessor(Function.identity())
+				.withReadOnlyBinding()
 				.forLabel(label -> label.setContentMode(ContentMode.HTML))
 				.build();
 
@@ -136,13 +162,20 @@ class HerosGrid {
 	}
 
 	static class HerosLoaded implements BroadcastAction {
-		private final List<Person> heros;
+		private final ReferenceData.Snapshot<List<Person>> heros;
 
-		HerosLoaded(List<Person> heros) {
+		HerosLoaded(ReferenceData.Snapshot<List<Person>> heros) {
 			this.heros = heros;
 		}
 	}
 
+	/**
+	 * The heros did not change since they were loaded the last time (HTTP 304)
+	 */
+	static class HerosUnchanged implements BroadcastAction {
+
+	}
+
 	static class LoadError implements BroadcastAction {
 		private final String error;
 
@@ -153,18 +186,22 @@ class HerosGrid {
 
 	private static Model update(Action action, Model oldModel) {
 		if (action instanceof HerosLoaded) {
-			return Model.copy(oldModel, oldModel.builder
+			return Model.copy(oldModel.builder
 					.withStatus("Loaded")
 					.withHeros(((HerosLoaded) action).heros)
 			);
+		} else if (action instanceof HerosUnchanged) {
+			// Same heros: the grid is left alone
+			return Model.copy(oldModel.builder
+					.withStatus("Loaded (unchanged)")
+			);
 		} else if (action instanceof LoadError) {
-			return Model.copy(oldModel, oldModel.builder
+			return Model.copy(oldModel.builder
 					.withStatus("Loading heros failed: " + ((LoadError) action).error)
 			);
 		} else if (action instanceof HerosLoading) {
-			return Model.copy(oldModel, oldModel.builder
+			return Model.copy(oldModel.builder
 					.withStatus("Loading...")
-					.withHeros(new ArrayList<>())
 			);
 		} else {
 			return oldModel;
@@ -1,20 +1,6 @@
 package mvu.sample;
 
-import static mvu.support.ActionKt.fromLeft;
-import static mvu.support.ActionKt.fromRight;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 
 import com.vaadin.data.Binder;
 import com.vaadin.ui.Button;
@@ -26,10 +12,13 @@ import mvu.sample.model.Person;
 import mvu.support.Action;
 import mvu.support.AsyncAction;
 import mvu.support.AsyncActionResult;
+import mvu.support.BroadcastAction;
 import mvu.support.Dispatcher;
 import mvu.support.ModelViewBinderKt;
 import mvu.support.extra.BoundTextField;
 import mvu.support.extra.DispatchButton;
+import mvu.support.extra.HttpFetch;
+import mvu.support.extra.StreamDecoder;
 
 /**
  * Basic Component template
@@ -102,6 +91,7 @@ class LoadBar {
 		Button loadHeros = DispatchButton.builder(dispatcher)
 				.withCaption("Load heros")
 				.withAction(() -> new LoadHeros(binder.getBean().url))
+				.withInFlightGuard(DispatchButton.InFlightPolicy.IGNORE, true)
 				.build();
 
 		loadLayout.addComponent(url);
@@ -122,7 +112,7 @@ class LoadBar {
 		}
 	}
 
-	static class LoadHeros implements Action, AsyncAction<HerosGrid.HerosLoading, HerosGrid.LoadError, HerosGrid.HerosLoaded> {
+	static class LoadHeros implements Action, AsyncAction<HerosGrid.HerosLoading, HerosGrid.LoadError, BroadcastAction> {
 		final String url;
 
 		LoadHeros(String url) {
@@ -130,7 +120,7 @@ class LoadBar {
 		}
 
 		@Override
-		public AsyncActionResult<HerosGrid.LoadError, HerosGrid.HerosLoaded> perform() {
+		public AsyncActionResult<HerosGrid.LoadError, BroadcastAction> perform() {
 			return fetchHeros(this.url);
 		}
 
@@ -150,64 +140,31 @@ class LoadBar {
 		}
 	}
 
-	private static AsyncActionResult<HerosGrid.LoadError, HerosGrid.HerosLoaded> fetchHeros(String currentUrl) {
-		try {
-			System.err.println(String.format("Loading data from %s", currentUrl + "/rest/persons"));
-			URL url = new URL(currentUrl + "/rest/persons" /*NO TRAILING SLASH!*/);
-			HttpURLConnection con = (HttpURLConnection) url.openConnection();
-			con.setRequestMethod("GET");
-
-			if (con.getResponseCode() != 200) {
-				String error = errorToString(con);
-				throw new ExecutionException(String.format("Fetch failed with status '%s' and message\n%s", con.getResponseCode(), error), null);
-			}
-
-			String result = responseToString(con);
-
-			List<Person> heros = Arrays.stream(result.split(","))
-					.map(s -> s.split(" "))
-					.map(personArray -> new Person(personArray[0], personArray[1]))
-					.collect(Collectors.toList());
-			return fromRight(new HerosGrid.HerosLoaded(heros));
-		} catch (Exception e) {
-			e.printStackTrace();
-			String errorMsg = String.join("</br>", getErrorMessages(new ArrayList<>(), e));
-			return fromLeft(new HerosGrid.LoadError(errorMsg));
-		}
-	}
-
-	private static List<String> getErrorMessages(List<String> messages, Throwable throwable) {
-		List<String> newMessages = new ArrayList<>(messages);
-		newMessages.add(throwable.getMessage());
-		if (throwable.getCause() != null) {
-			return getErrorMessages(newMessages, throwable.getCause());
-		}
-		return newMessages;
+	/**
+	 * "Steve Wozniak,Evan Czaplicki,..."
+	 */
+	static final HttpFetch<List<Person>> HEROS_FETCH = HttpFetch
+			.builder(StreamDecoder.delimited(',', LoadBar::decodePerson))
+			.withRevalidationCache(16)
+			.build();
+
+	/**
+	 * HerosLoaded, or HerosUnchanged when the heros did not change since the previous load
+	 */
+	private static AsyncActionResult<HerosGrid.LoadError, BroadcastAction> fetchHeros(String currentUrl) {
+		String url = currentUrl + "/rest/persons" /*NO TRAILING SLASH!*/;
+		return HEROS_FETCH.get(url,
+				failure -> new HerosGrid.LoadError(failure.getMessage()),
+				heros -> new HerosGrid.HerosLoaded(HerosGrid.loaded(url, heros)),
+				HerosGrid.HerosUnchanged::new);
 	}
 
-	private static String errorToString(HttpURLConnection con) throws IOException {
-		return readData(con.getErrorStream());
-	}
-
-	private static String responseToString(HttpURLConnection con) throws IOException {
-		return readData(con.getInputStream());
-	}
-
-	private static String readData(InputStream dataStream) throws IOException {
-		String result;
-		try (Reader streamReader = new InputStreamReader(dataStream)) {
-			try (BufferedReader in = new BufferedReader(streamReader)) {
-				String inputLine;
-				StringBuilder content = new StringBuilder();
-				while ((inputLine = in.readLine()) != null) {
-					content.append(inputLine);
-				}
-				result = content.toString();
-			}
+	private static Person decodePerson(String item) {
+		int space = item.indexOf(' ');
+		if (space < 0) {
+			throw new IllegalArgumentException("Not a person: " + item);
 		}
-		return result;
-
+		return new Person(item.substring(0, space), item.substring(space + 1));
 	}
 
-
 }
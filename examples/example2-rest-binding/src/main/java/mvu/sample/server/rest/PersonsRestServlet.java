@@ -4,21 +4,60 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import mvu.sample.model.Person;
 
+/**
+ * A slow and unstable REST backend for the example and for load tests.
+ * <p>
+ * Requests are asynchronous: the container thread is released right away and the response is written once the
+ * latency passed, without blocking, as the client reads it. So a single box can keep tens of thousands of requests in
+ * flight. Configured with init parameters (see web.xml), which can be overridden per request with query parameters:
+ *
+ * <ul>
+ *   <li>latencyMillis / latency: the mean latency, 2000 by default.</li>
+ *   <li>latencyDistribution / distribution: FIXED (default), UNIFORM (between 0 and twice the mean) or EXPONENTIAL.</li>
+ *   <li>failureRate: the fraction of the requests which fail with a 500, 0.33 by default.</li>
+ *   <li>payloadSize / size: the number of persons in the response, 3 (the heros) by default.</li>
+ * </ul>
+ *
+ * E.g. <code>/rest/persons?latency=50&amp;failureRate=0&amp;size=10000</code>
+ */
 public class PersonsRestServlet extends HttpServlet {
 
+	enum LatencyDistribution {
+		FIXED,
+		UNIFORM,
+		EXPONENTIAL
+	}
+
+	/**
+	 * Rows are encoded in chunks of about this many bytes.
+	 */
+	private static final int CHUNK_SIZE = 8192;
+
 	private final List<Person> heros;
 
-	private AtomicInteger unstableNetworkCounter = new AtomicInteger(1);
+	private long latencyMillis = 2000;
+	private LatencyDistribution latencyDistribution = LatencyDistribution.FIXED;
+	private double failureRate = 0.33;
+	private int payloadSize = 3;
+
+	/**
+	 * Only waits for the latency to pass, the responses are written by the container threads.
+	 */
+	private ScheduledThreadPoolExecutor scheduler;
 
 	public PersonsRestServlet() {
 		super();
@@ -31,33 +70,140 @@ public class PersonsRestServlet extends HttpServlet {
 
 	}
 
+	@Override
+	public void init() throws ServletException {
+		latencyMillis = Long.parseLong(initParameter("latencyMillis", String.valueOf(latencyMillis)));
+		latencyDistribution = LatencyDistribution.valueOf(initParameter("latencyDistribution", latencyDistribution.name()));
+		failureRate = Double.parseDouble(initParameter("failureRate", String.valueOf(failureRate)));
+		payloadSize = Integer.parseInt(initParameter("payloadSize", String.valueOf(payloadSize)));
+
+		scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "persons-rest-latency");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	@Override
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 
 	}
 
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		sleep(2);
+		long latency = latency(
+				Long.parseLong(parameter(request, "latency", String.valueOf(latencyMillis))),
+				LatencyDistribution.valueOf(parameter(request, "distribution", latencyDistribution.name())));
+		boolean fail = ThreadLocalRandom.current().nextDouble() < Double.parseDouble(parameter(request, "failureRate", String.valueOf(failureRate)));
+		int size = Integer.parseInt(parameter(request, "size", String.valueOf(payloadSize)));
+		String ifNoneMatch = request.getHeader("If-None-Match");
+
+		AsyncContext asyncContext = request.startAsync();
+		asyncContext.setTimeout(0);
+		scheduler.schedule(() -> asyncContext.start(() -> respond(asyncContext, fail, size, ifNoneMatch)), latency, TimeUnit.MILLISECONDS);
+	}
+
+	private void respond(AsyncContext asyncContext, boolean fail, int size, String ifNoneMatch) {
+		HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+		try {
+			if (fail) {
+				response.setStatus(500);
+				response.getOutputStream().write("It just happened...".getBytes(StandardCharsets.UTF_8));
+				asyncContext.complete();
+				return;
+			}
+
+			// The persons only depend on the size, so clients can revalidate what they have
+			String eTag = "\"persons-" + size + "\"";
+			response.setHeader("ETag", eTag);
+			if (eTag.equals(ifNoneMatch)) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				asyncContext.complete();
+				return;
+			}
+
+			response.setContentType("text/plain;charset=UTF-8");
+			ServletOutputStream out = response.getOutputStream();
+			out.setWriteListener(new PersonsWriter(asyncContext, out, size));
+		} catch (IOException | RuntimeException e) {
+			asyncContext.complete();
+		}
+	}
+
+	/**
+	 * Writes "first last,first last,..." chunk by chunk, whenever the client is ready for more.
+	 */
+	private class PersonsWriter implements WriteListener {
+
+		private final AsyncContext asyncContext;
+		private final ServletOutputStream out;
+		private final int size;
+		private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 64);
+		private int next = 0;
+
+		private PersonsWriter(AsyncContext asyncContext, ServletOutputStream out, int size) {
+			this.asyncContext = asyncContext;
+			this.out = out;
+			this.size = size;
+		}
 
-		if(unstableNetworkCounter.getAndIncrement() % 3 == 0){
-			response.setStatus(500);
-			response.getOutputStream().write("It just happened...".getBytes(StandardCharsets.UTF_8));
-			return;
+		@Override
+		public void onWritePossible() throws IOException {
+			while (out.isReady()) {
+				if (next == size) {
+					asyncContext.complete();
+					return;
+				}
+				chunk.setLength(0);
+				while (next < size && chunk.length() < CHUNK_SIZE) {
+					if (next > 0) {
+						chunk.append(',');
+					}
+					appendPerson(chunk, next++);
+				}
+				out.write(chunk.toString().getBytes(StandardCharsets.UTF_8));
+			}
 		}
 
-		String data = heros.stream()
-				.map(p -> String.format("%s %s", p.getFirstName(), p.getLastName()))
-				.collect(Collectors.joining(","));
+		@Override
+		public void onError(Throwable throwable) {
+			// The client went away
+			asyncContext.complete();
+		}
 
-		response.getOutputStream().write(
-				data.getBytes(StandardCharsets.UTF_8)
-		);
 	}
 
-	private void sleep(long secs){
-		try{
-			Thread.sleep(secs * 1000);
-		} catch(InterruptedException e){
-			throw new RuntimeException("Woke up on the wrong side of the bed...");
+	private void appendPerson(StringBuilder chunk, int index) {
+		if (index < heros.size()) {
+			Person hero = heros.get(index);
+			chunk.append(hero.getFirstName()).append(' ').append(hero.getLastName());
+		} else {
+			chunk.append("Person").append(index).append(" Number").append(index);
 		}
 	}
+
+	private long latency(long mean, LatencyDistribution distribution) {
+		switch (distribution) {
+			case UNIFORM:
+				return ThreadLocalRandom.current().nextLong(2 * mean + 1);
+			case EXPONENTIAL:
+				return (long) (-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+			default:
+				return mean;
+		}
+	}
+
+	private String initParameter(String name, String defaultValue) {
+		String value = getInitParameter(name);
+		return value == null ? defaultValue : value;
+	}
+
+	private static String parameter(HttpServletRequest request, String name, String defaultValue) {
+		String value = request.getParameter(name);
+		return value == null ? defaultValue : value;
+	}
 }
@@ -0,0 +1,54 @@
+package mvu.sample
+
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import mvu.support.Action
+import mvu.support.AsyncAction
+import mvu.support.AsyncActionResult
+import mvu.support.AsyncExecution
+import mvu.support.AsyncExecutionMode
+import java.lang.management.ManagementFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Fires a burst of concurrent LoadHeros actions at the (slow) PersonsRestServlet for each AsyncExecutionMode.
+ * <p>
+ * Start the example first (./gradlew :appRun) and then run ./gradlew :benchmarkAsyncExecution
+ *
+ * Arguments: [url] [concurrent requests]
+ */
+fun main(args: Array<String>) {
+    val url = args.getOrElse(0) { "http://127.0.0.1:8080/vaadin-mvu-example2" }
+    val concurrentRequests = args.getOrElse(1) { "1000" }.toInt()
+
+    println("Virtual threads supported: ${AsyncExecution.isVirtualThreadsSupported}")
+    AsyncExecutionMode.values().forEach { mode ->
+        AsyncExecution.mode = mode
+        benchmark(mode, url, concurrentRequests)
+    }
+}
+
+private fun benchmark(mode: AsyncExecutionMode, url: String, concurrentRequests: Int) = runBlocking {
+    val threads = ManagementFactory.getThreadMXBean()
+    threads.resetPeakThreadCount()
+
+    val loaded = AtomicInteger()
+    val failed = AtomicInteger()
+    val start = System.nanoTime()
+
+    val jobs = (1..concurrentRequests).map {
+        GlobalScope.launch(AsyncExecution.dispatcher) {
+            val action: AsyncAction<*, *, *> = LoadBar.LoadHeros(url)
+            val result: AsyncActionResult<Action, Action> = action.perform()
+            if (result.isRight) loaded.incrementAndGet() else failed.incrementAndGet()
+        }
+    }
+    jobs.forEach { it.join() }
+
+    val elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+    println(String.format("%-16s requests=%d loaded=%d failed=%d time=%dms throughput=%.1f req/s peakThreads=%d",
+            mode, concurrentRequests, loaded.get(), failed.get(), elapsedMillis,
+            concurrentRequests * 1000.0 / Math.max(elapsedMillis, 1), threads.peakThreadCount))
+}
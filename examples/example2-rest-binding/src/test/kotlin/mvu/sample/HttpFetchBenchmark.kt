@@ -0,0 +1,82 @@
+package mvu.sample
+
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import mvu.sample.model.Person
+import mvu.support.AsyncExecution
+import mvu.support.AsyncExecutionMode
+import java.io.BufferedReader
+import java.io.InputStreamReader
+import java.net.HttpURLConnection
+import java.net.URL
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Fetches the persons of the PersonsRestServlet in bursts of concurrent requests: the way LoadBar used to do it (a
+ * fresh connection, the whole body in a String, split) against HttpFetch (one HttpClient with pooled connections, the
+ * body decoded while it comes in).
+ * <p>
+ * Start the example first (./gradlew :appRun) and then run ./gradlew :benchmarkHttpFetch
+ *
+ * Arguments: [url] [concurrent requests] [rounds]
+ */
+fun main(args: Array<String>) {
+    val url = args.getOrElse(0) { "http://127.0.0.1:8080/vaadin-mvu-example2" } + "/rest/persons"
+    val concurrentRequests = args.getOrElse(1) { "200" }.toInt()
+    val rounds = args.getOrElse(2) { "5" }.toInt()
+
+    AsyncExecution.mode = AsyncExecutionMode.VIRTUAL_THREADS
+    // The first round warms up
+    repeat(rounds) { round ->
+        benchmark("legacy", round, concurrentRequests) { legacyFetch(url) }
+        benchmark("HttpFetch", round, concurrentRequests) { LoadBar.HEROS_FETCH.get(url).isRight }
+    }
+}
+
+private fun benchmark(name: String, round: Int, concurrentRequests: Int, fetch: () -> Boolean) = runBlocking {
+    val loaded = AtomicInteger()
+    val failed = AtomicInteger()
+    val start = System.nanoTime()
+
+    val jobs = (1..concurrentRequests).map {
+        GlobalScope.launch(AsyncExecution.dispatcher) {
+            if (fetch()) loaded.incrementAndGet() else failed.incrementAndGet()
+        }
+    }
+    jobs.forEach { it.join() }
+
+    val elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+    println(String.format("round %d %-10s requests=%d loaded=%d failed=%d time=%dms throughput=%.1f req/s",
+            round, name, concurrentRequests, loaded.get(), failed.get(), elapsedMillis,
+            concurrentRequests * 1000.0 / Math.max(elapsedMillis, 1)))
+}
+
+/**
+ * LoadBar#fetchHeros as it was.
+ */
+private fun legacyFetch(url: String): Boolean {
+    return try {
+        val con = URL(url).openConnection() as HttpURLConnection
+        con.requestMethod = "GET"
+        if (con.responseCode != 200) {
+            BufferedReader(InputStreamReader(con.errorStream)).use { it.readLine() }
+            return false
+        }
+        val content = StringBuilder()
+        BufferedReader(InputStreamReader(con.inputStream)).use { reader ->
+            var line = reader.readLine()
+            while (line != null) {
+                content.append(line)
+                line = reader.readLine()
+            }
+        }
+        content.toString().split(",")
+                .map { it.split(" ") }
+                .map { Person(it[0], it[1]) }
+        true
+    } catch (e: Exception) {
+        false
+    }
+}
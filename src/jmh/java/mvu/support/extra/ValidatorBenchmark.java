@@ -0,0 +1,74 @@
+package mvu.support.extra;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.vaadin.data.ValidationResult;
+import com.vaadin.data.Validator;
+import com.vaadin.data.ValueContext;
+
+/**
+ * Validation of one keystroke: the exception based IntegerValidator (as it was) against Validators.
+ * <p>
+ * Run with <code>./gradlew jmh</code>, add <code>-prof gc</code> to the JMH arguments to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidatorBenchmark {
+
+	@Param({"12345", "12a45"})
+	public String input;
+
+	private final ValueContext valueContext = new ValueContext();
+
+	private final Validator<String> legacyIntegerValidator = new LegacyIntegerValidator();
+	private final Validator<String> integerValidator = Validators.integer();
+	private final Validator<String> pipeline = Validators.pipeline(
+			Validators.length(1, 10),
+			Validators.integer(),
+			Validators.range(0, 99999));
+
+	@Benchmark
+	public ValidationResult legacyInteger() {
+		return legacyIntegerValidator.apply(input, valueContext);
+	}
+
+	@Benchmark
+	public ValidationResult integer() {
+		return integerValidator.apply(input, valueContext);
+	}
+
+	@Benchmark
+	public ValidationResult pipeline() {
+		return pipeline.apply(input, valueContext);
+	}
+
+	/**
+	 * The IntegerValidator before Validators: Integer#valueOf with the NumberFormatException as control flow.
+	 */
+	private static class LegacyIntegerValidator implements Validator<String> {
+		@Override
+		public ValidationResult apply(String s, ValueContext valueContext) {
+			try {
+				if (s == null || s.isEmpty()) {
+					return ValidationResult.ok();
+				}
+				Integer.valueOf(s);
+				return ValidationResult.ok();
+			} catch (NumberFormatException nfe) {
+				return ValidationResult.error(String.format("Cannot convert %s into an integer", s));
+			} catch (Exception e) {
+				return ValidationResult.error("Unknown exception converting your input");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+package mvu.support.extra;
+
+import static mvu.support.ActionKt.fromLeft;
+import static mvu.support.ActionKt.fromRight;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.data.ValidationResult;
+
+import mvu.support.Action;
+import mvu.support.AsyncActionResult;
+import mvu.support.CancelSuperseded;
+import mvu.support.CoalesceMode;
+import mvu.support.Coalescer;
+import mvu.support.Dispatcher;
+import mvu.support.SupersedingAsyncAction;
+
+/**
+ * Runs an AsyncValidator for the values of one field: debounced, through the async engine, with the latest check
+ * superseding (cancelling) the running one and a small cache of recent results.
+ */
+class AsyncValidation<VALUE> implements Serializable {
+
+	private static final Logger LOG = Logger.getLogger(AsyncValidation.class.getName());
+
+	private static final int CACHE_SIZE = 32;
+
+	private final AsyncValidator<VALUE> validator;
+	private final Function<ValidationState<VALUE>, Action> statusAction;
+	private final Dispatcher dispatcher;
+	private final Coalescer<VALUE> debouncer;
+	private VALUE latestValue;
+
+	// Written by the async engine, read under the session lock
+	private final Map<VALUE, ValidationResult> recentResults = Collections.synchronizedMap(
+			new LinkedHashMap<VALUE, ValidationResult>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<VALUE, ValidationResult> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			});
+
+	AsyncValidation(AsyncValidator<VALUE> validator, int debounceMillis, Function<ValidationState<VALUE>, Action> statusAction, Dispatcher dispatcher) {
+		this.validator = validator;
+		this.statusAction = statusAction;
+		this.dispatcher = dispatcher;
+		this.debouncer = new Coalescer<>(CoalesceMode.DEBOUNCE, debounceMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Validate the value once the user stopped typing. Must be called under the session lock.
+	 * <p>
+	 * The value is PENDING right away. A cached result is shown right away as well, without a round trip through the
+	 * async engine: only the check which might still be running for an older value is cancelled.
+	 */
+	void validate(VALUE value) {
+		latestValue = value;
+		ValidationResult cached = recentResults.get(value);
+		if (cached != null) {
+			dispatcher.getDispatcher().invoke(new CancelSuperseded(this));
+			dispatcher.getDispatcher().invoke(statusAction.apply(ValidationState.of(value, cached)));
+			return;
+		}
+		dispatcher.getDispatcher().invoke(statusAction.apply(ValidationState.pending(value)));
+		debouncer.offer(value, v -> {
+			if (Objects.equals(v, latestValue)) {
+				dispatcher.getDispatcher().invoke(new Validate(v));
+			}
+		});
+	}
+
+	/**
+	 * Validate the pending value right away, e.g. when the field loses focus.
+	 */
+	void flush() {
+		debouncer.flush();
+	}
+
+	private class Validate implements SupersedingAsyncAction<Action, Action, Action> {
+
+		private final VALUE value;
+
+		private Validate(VALUE value) {
+			this.value = value;
+		}
+
+		@Override
+		public Object getSupersedeKey() {
+			return AsyncValidation.this;
+		}
+
+		@Override
+		public Action getStartAction() {
+			// PENDING was shown when the value changed
+			return null;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <LEFTACTION, RIGHTACTION> AsyncActionResult<LEFTACTION, RIGHTACTION> perform() {
+			ValidationResult result;
+			try {
+				result = validator.validate(value);
+			} catch (RuntimeException e) {
+				LOG.log(Level.WARNING, "Async validation failed", e);
+				return fromLeft((LEFTACTION) statusAction.apply(
+						ValidationState.of(value, ValidationResult.error("Validation failed, please try again"))));
+			}
+			recentResults.put(value, result);
+			Action status = statusAction.apply(ValidationState.of(value, result));
+			return result.isError() ? fromLeft((LEFTACTION) status) : fromRight((RIGHTACTION) status);
+		}
+
+	}
+
+}
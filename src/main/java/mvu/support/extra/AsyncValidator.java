@@ -0,0 +1,18 @@
+package mvu.support.extra;
+
+import java.io.Serializable;
+
+import com.vaadin.data.ValidationResult;
+
+/**
+ * A validation which needs a backend round trip, e.g. checking that a user name is still available.
+ * <p>
+ * Runs in the background through the async engine (see AsyncExecution), so it may block. See
+ * BoundTextField.Builder#withAsyncValidator.
+ */
+@FunctionalInterface
+public interface AsyncValidator<VALUE> extends Serializable {
+
+	ValidationResult validate(VALUE value);
+
+}
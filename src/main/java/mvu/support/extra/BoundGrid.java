@@ -0,0 +1,337 @@
+package mvu.support.extra;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import com.vaadin.data.Binder;
+import com.vaadin.data.HasValue;
+import com.vaadin.data.ReadOnlyHasValue;
+import com.vaadin.data.ValueProvider;
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.ListDataProvider;
+import com.vaadin.server.SerializableConsumer;
+import com.vaadin.server.SerializableFunction;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.Registration;
+import com.vaadin.ui.Grid;
+
+import mvu.support.Coalescer;
+import mvu.support.ModelBinder;
+
+/**
+ * A grid which shows a collection of the model.
+ * <p>
+ * By default every new collection replaces the data provider of the grid, which resets the grid on the client
+ * (scroll position, selection). With #withDiffing or #withKey the grid keeps one ListDataProvider and only sends the
+ * difference with the previous collection:
+ *
+ * <ul>
+ *   <li>Rows which changed (same key, different item): only those rows are refreshed (DataProvider#refreshItem).</li>
+ *   <li>Rows which were inserted, removed or moved: the provider is refreshed, but not replaced.</li>
+ *   <li>Nothing changed: nothing is sent.</li>
+ * </ul>
+ *
+ * With #withSortProvider and/or #withFilterProvider the grid shows a sorted and filtered view on the items, see
+ * SortedFilteredItems: small changes are applied to the view incrementally, a new sort or filter on a large
+ * collection is computed on a worker thread and swapped in afterwards.
+ */
+public class BoundGrid<MODEL, T> implements Serializable {
+
+	private final Grid<T> grid;
+
+	private BoundGrid(Builder<MODEL, T> builder) {
+		this.grid = builder.grid;
+
+		if (builder.valueProvider == null) {
+			throw new RuntimeException("Please provide a valueProvider for this grid to actually show something. See `withValueProvider`");
+		}
+
+		SerializableConsumer<Collection<T>> setItems;
+		if (builder.diffing) {
+			setItems = new DiffingItems<>(grid, builder.keyFunction)::setItems;
+		} else {
+			setItems = items -> grid.setDataProvider(new ListDataProvider<>(items));
+		}
+		SerializableConsumer<Collection<T>> render = Coalescer.rateLimited(setItems, builder.maxRefreshRate);
+
+		if (builder.initialItems != null) {
+			setItems.accept(builder.initialItems);
+		}
+
+		if (builder.sortProvider != null || builder.filterProvider != null) {
+			bindSortedFiltered(builder, render);
+			return;
+		}
+
+		if (builder.readOnlyBinding && builder.binder instanceof ModelBinder) {
+			// Lightweight one-way binding, bypassing the Vaadin Binder machinery
+			((ModelBinder<MODEL>) builder.binder).bindReadOnly(builder.valueProvider, items ->
+					render.accept(builder.valueProcessor.apply(items)));
+			return;
+		}
+
+		builder.binder.forField(new HasValue<Collection<T>>() {
+
+			private List<ValueChangeListener<Collection<T>>> valueChangeListeners = new ArrayList<>();
+
+			@Override
+			public void setValue(Collection<T> value) {
+				render.accept(builder.valueProcessor.apply(value));
+			}
+
+			@Override
+			public Collection<T> getValue() {
+				DataProvider<T, ?> dataProvider = grid.getDataProvider();
+				if (dataProvider instanceof ListDataProvider) {
+					return ((ListDataProvider<T>) dataProvider).getItems();
+				} else {
+					throw new RuntimeException("Cannot get the value from a non-list grid dataprovider");
+				}
+			}
+
+			@Override
+			public Registration addValueChangeListener(ValueChangeListener<Collection<T>> listener) {
+				valueChangeListeners.add(listener);
+				return (Registration) () -> valueChangeListeners.remove(listener);
+			}
+
+			@Override
+			public void setRequiredIndicatorVisible(boolean requiredIndicatorVisible) {
+
+			}
+
+			@Override
+			public boolean isRequiredIndicatorVisible() {
+				return false;
+			}
+
+			@Override
+			public void setReadOnly(boolean readOnly) {
+
+			}
+
+			@Override
+			public boolean isReadOnly() {
+				return false;
+			}
+		}).bind(
+				builder.valueProvider,
+				(model, v) -> {
+					throw new UnsupportedOperationException("grids should not update the model directly!");
+				});
+
+
+	}
+
+	private void bindSortedFiltered(Builder<MODEL, T> builder, SerializableConsumer<Collection<T>> render) {
+		SortedFilteredItems<T> sortedFilteredItems = new SortedFilteredItems<>(
+				builder.keyFunction, render::accept, builder.sortExecutor, VaadinSession.getCurrent());
+		ValueProvider<MODEL, SortedFilteredItems.Source<T>> sourceProvider = model -> new SortedFilteredItems.Source<>(
+				builder.valueProcessor.apply(builder.valueProvider.apply(model)),
+				builder.sortProvider == null ? null : builder.sortProvider.apply(model),
+				builder.filterProvider == null ? null : builder.filterProvider.apply(model));
+
+		if (builder.readOnlyBinding && builder.binder instanceof ModelBinder) {
+			((ModelBinder<MODEL>) builder.binder).bindReadOnly(sourceProvider, sortedFilteredItems::update);
+			return;
+		}
+
+		ReadOnlyHasValue<SortedFilteredItems.Source<T>> readOnlySource = new ReadOnlyHasValue<>(sortedFilteredItems::update);
+		builder.binder
+				.forField(readOnlySource).bind(sourceProvider, (model, v) -> {
+			throw new UnsupportedOperationException("grids should not update the model directly!");
+		});
+	}
+
+	/**
+	 * One ListDataProvider for the lifetime of the grid, updated with the difference between two collections.
+	 */
+	private static class DiffingItems<T> implements Serializable {
+
+		private final List<T> items = new ArrayList<>();
+		private final SerializableFunction<T, ?> keyFunction;
+		private final ListDataProvider<T> dataProvider;
+
+		private DiffingItems(Grid<T> grid, SerializableFunction<T, ?> keyFunction) {
+			this.keyFunction = keyFunction;
+			this.dataProvider = new ListDataProvider<T>(items) {
+				@Override
+				public Object getId(T item) {
+					// Rows are identified by their key, so a changed item replaces the row of the previous one
+					return keyFunction == null ? super.getId(item) : keyFunction.apply(item);
+				}
+			};
+			grid.setDataProvider(dataProvider);
+		}
+
+		private void setItems(Collection<T> newCollection) {
+			List<T> newItems = newCollection == null ? Collections.emptyList() : new ArrayList<>(newCollection);
+
+			boolean structureChanged = newItems.size() != items.size();
+			List<T> changedItems = new ArrayList<>();
+			for (int i = 0; i < newItems.size() && !structureChanged; i++) {
+				T oldItem = items.get(i);
+				T newItem = newItems.get(i);
+				if (oldItem == newItem) {
+					continue;
+				}
+				if (!sameRow(oldItem, newItem)) {
+					// Insert, remove or move
+					structureChanged = true;
+				} else if (!Objects.equals(oldItem, newItem)) {
+					changedItems.add(newItem);
+				}
+			}
+
+			items.clear();
+			items.addAll(newItems);
+
+			if (structureChanged) {
+				// Same provider: the grid keeps its scroll position and (still existing) selection
+				dataProvider.refreshAll();
+			} else {
+				changedItems.forEach(dataProvider::refreshItem);
+			}
+		}
+
+		private boolean sameRow(T oldItem, T newItem) {
+			if (keyFunction == null || oldItem == null || newItem == null) {
+				return Objects.equals(oldItem, newItem);
+			}
+			return Objects.equals(keyFunction.apply(oldItem), keyFunction.apply(newItem));
+		}
+
+	}
+
+	public static <MODEL, T> Builder<MODEL, T> builder(Binder<MODEL> binder, Class<T> gridTypeClass) {
+		return new Builder<>(binder, gridTypeClass);
+	}
+
+	public static <MODEL, T> Builder<MODEL, T> builder(Grid<T> grid, Binder<MODEL> binder) {
+		return new Builder<>(grid, binder, grid.getBeanType());
+	}
+
+	public static class Builder<MODEL, T> implements Serializable {
+
+		private final Binder<MODEL> binder;
+		private final Grid<T> grid;
+		private final Class<T> gridTypeClass;
+
+		private Collection<T> initialItems;
+		private ValueProvider<MODEL, Collection<T>> valueProvider;
+		private SerializableFunction<Collection<T>, Collection<T>> valueProcessor = SerializableFunction.identity();
+		private boolean readOnlyBinding = false;
+		private int maxRefreshRate = 0;
+		private boolean diffing = false;
+		private SerializableFunction<T, ?> keyFunction;
+		private ValueProvider<MODEL, Comparator<T>> sortProvider;
+		private ValueProvider<MODEL, Predicate<T>> filterProvider;
+		// Only used while building
+		private transient Executor sortExecutor = ForkJoinPool.commonPool();
+
+		public Builder<MODEL, T> withValueProvider(ValueProvider<MODEL, Collection<T>> valueProvider) {
+			this.valueProvider = valueProvider;
+			return this;
+		}
+
+		public Builder<MODEL, T> withValueProcessor(SerializableFunction<Collection<T>, Collection<T>> valueProcessor) {
+			this.valueProcessor = valueProcessor;
+			return this;
+		}
+
+		private Builder(Binder<MODEL> binder, Class<T> gridTypeClass) {
+			this(new Grid<>(gridTypeClass), binder, gridTypeClass);
+		}
+
+		private Builder(Grid<T> grid, Binder<MODEL> binder, Class<T> gridTypeClass) {
+			this.grid = grid;
+			this.binder = binder;
+			this.gridTypeClass = gridTypeClass;
+		}
+
+		/**
+		 * Use a lightweight read-only binding instead of a full Vaadin Binder binding.
+		 * <p>
+		 * Only has an effect for binders created by bindModelAndView (see ModelBinder).
+		 */
+		public Builder<MODEL, T> withReadOnlyBinding() {
+			this.readOnlyBinding = true;
+			return this;
+		}
+
+		/**
+		 * Refresh the grid at most maxRefreshRate times per second. The latest items win and are always shown at the end.
+		 * Rates above Coalescer#MAX_RATE_PER_SECOND (10) are clamped to it, the timer behind it ticks every 100 ms.
+		 */
+		public Builder<MODEL, T> withMaxRefreshRate(int maxRefreshRate) {
+			this.maxRefreshRate = Math.min(maxRefreshRate, Coalescer.MAX_RATE_PER_SECOND);
+			return this;
+		}
+
+		/**
+		 * Keep one data provider and only refresh the difference with the previous items (rows are compared with equals).
+		 */
+		public Builder<MODEL, T> withDiffing() {
+			this.diffing = true;
+			return this;
+		}
+
+		/**
+		 * Same as #withDiffing where rows are identified by a key (e.g. the id of an entity), so a row with a new
+		 * version of an item is refreshed in place.
+		 */
+		public Builder<MODEL, T> withKey(SerializableFunction<T, ?> keyFunction) {
+			this.diffing = true;
+			this.keyFunction = keyFunction;
+			return this;
+		}
+
+		/**
+		 * Sort the rows by the comparator in the model (keep the comparator in the model, don't create a new one per
+		 * model, otherwise every action sorts again). Implies #withDiffing.
+		 */
+		public Builder<MODEL, T> withSortProvider(ValueProvider<MODEL, Comparator<T>> sortProvider) {
+			this.diffing = true;
+			this.sortProvider = sortProvider;
+			return this;
+		}
+
+		/**
+		 * Only show the rows which pass the filter in the model (same remark as for #withSortProvider). Implies #withDiffing.
+		 */
+		public Builder<MODEL, T> withFilterProvider(ValueProvider<MODEL, Predicate<T>> filterProvider) {
+			this.diffing = true;
+			this.filterProvider = filterProvider;
+			return this;
+		}
+
+		/**
+		 * The worker for sorting and filtering large collections, defaults to the common pool. It is not serialized with
+		 * the session, the common pool takes over after a restore.
+		 */
+		public Builder<MODEL, T> withSortExecutor(Executor sortExecutor) {
+			this.sortExecutor = sortExecutor;
+			return this;
+		}
+
+		public Builder<MODEL, T> withInitialItems(Collection<T> initialItems) {
+			this.initialItems = initialItems;
+			return this;
+		}
+
+		public Grid<T> build() {
+			BoundGrid<MODEL, T> boundGrid = new BoundGrid<>(this);
+			return boundGrid.grid;
+		}
+
+	}
+
+}
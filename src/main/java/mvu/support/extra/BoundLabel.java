@@ -7,8 +7,12 @@ import java.util.function.Function;
 import com.vaadin.data.Binder;
 import com.vaadin.data.ReadOnlyHasValue;
 import com.vaadin.data.ValueProvider;
+import com.vaadin.server.SerializableConsumer;
 import com.vaadin.ui.Label;
 
+import mvu.support.Coalescer;
+import mvu.support.ModelBinder;
+
 
 public class BoundLabel<MODEL, TYPE> implements Serializable {
 
@@ -25,11 +29,21 @@ public class BoundLabel<MODEL, TYPE> implements Serializable {
 			throw new RuntimeException("Please provide a valueProvider for this label to actually show something. See `withValueProvider`");
 		}
 
+		SerializableConsumer<TYPE> render = Coalescer.rateLimited(
+				v -> label.setValue(builder.valueProcessor.apply(v)), builder.maxRefreshRate);
+
+		if (builder.readOnlyBinding && builder.binder instanceof ModelBinder) {
+			// Lightweight one-way binding, bypassing the Vaadin Binder machinery
+			((ModelBinder<MODEL>) builder.binder).bindReadOnly(builder.valueProvider, v ->
+					render.accept(v == null ? builder.emptyValue : v));
+			return;
+		}
+
 		ReadOnlyHasValue<TYPE> readOnlyLabel;
 		if (builder.emptyValue == null) {
-			readOnlyLabel = new ReadOnlyHasValue<>(v -> label.setValue(builder.valueProcessor.apply(v)));
+			readOnlyLabel = new ReadOnlyHasValue<>(render);
 		} else {
-			readOnlyLabel = new ReadOnlyHasValue<>(v -> label.setValue(builder.valueProcessor.apply(v)), builder.emptyValue);
+			readOnlyLabel = new ReadOnlyHasValue<>(render, builder.emptyValue);
 		}
 		builder.binder
 				.forField(readOnlyLabel).bind(builder.valueProvider, (model, v) -> {
@@ -55,6 +69,8 @@ public class BoundLabel<MODEL, TYPE> implements Serializable {
 		private ValueProvider<MODEL, TYPE> valueProvider;
 		private Function<TYPE, String> valueProcessor;
 		private TYPE emptyValue;
+		private boolean readOnlyBinding = false;
+		private int maxRefreshRate = 0;
 
 		private Builder(Binder<MODEL> binder, Class<TYPE> labelTypeClass) {
 			this(new Label(), binder, labelTypeClass);
@@ -82,6 +98,27 @@ public class BoundLabel<MODEL, TYPE> implements Serializable {
 			return this;
 		}
 
+		/**
+		 * Use a lightweight read-only binding instead of a full Vaadin Binder binding.
+		 * <p>
+		 * Only has an effect for binders created by bindModelAndView (see ModelBinder).
+		 */
+		public Builder<MODEL, TYPE> withReadOnlyBinding() {
+			this.readOnlyBinding = true;
+			return this;
+		}
+
+		/**
+		 * Render the value at most maxRefreshRate times per second, e.g. for counters, progress or live metrics.
+		 * <p>
+		 * The latest value wins and is always rendered at the end, so the label ends up showing the correct value.
+		 * Rates above Coalescer#MAX_RATE_PER_SECOND (10) are clamped to it, the timer behind it ticks every 100 ms.
+		 */
+		public Builder<MODEL, TYPE> withMaxRefreshRate(int maxRefreshRate) {
+			this.maxRefreshRate = Math.min(maxRefreshRate, Coalescer.MAX_RATE_PER_SECOND);
+			return this;
+		}
+
 		public Builder<MODEL, TYPE> forLabel(Consumer<Label> consumer) {
 			consumer.accept(label);
 			return this;
@@ -0,0 +1,346 @@
+package mvu.support.extra;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import com.vaadin.data.Binder;
+import com.vaadin.data.ReadOnlyHasValue;
+import com.vaadin.data.ValueProvider;
+import com.vaadin.data.provider.CallbackDataProvider;
+import com.vaadin.data.provider.Query;
+import com.vaadin.ui.Grid;
+
+import mvu.support.ModelBinder;
+
+/**
+ * A grid which loads its rows page by page, for collections which are too large to keep in the model.
+ * <p>
+ * The model only holds a query descriptor (filter, sort, version, ...). The grid fetches the rows it shows through
+ * the fetcher and keeps a bounded number of pages per grid. After every fetch the next pages are loaded in the
+ * background (read-ahead) so scrolling down usually hits the cache.
+ * <p>
+ * When the query in the model changes (equals), the cache is dropped and the grid reloads. Bump a version in the
+ * query to reload for the same filter, e.g. after saving a row.
+ *
+ * <pre>
+ * Grid&lt;Person&gt; persons = BoundLazyGrid.builder(binder, Person.class)
+ *         .withQueryProvider(model -> model.personQuery)
+ *         .withFetcher((query, offset, limit) -> personService.find(query.filter, query.sort, offset, limit))
+ *         .withCounter(query -> personService.count(query.filter))
+ *         .build();
+ * </pre>
+ * <p>
+ * Sorting is part of the query: the columns of the grid are not sortable, sort orders of the grid would not reach the
+ * fetcher.
+ */
+public class BoundLazyGrid<MODEL, QUERY, T> implements Serializable {
+
+	private static final Logger LOG = Logger.getLogger(BoundLazyGrid.class.getName());
+
+	/**
+	 * Fetches one page of rows for a query.
+	 */
+	@FunctionalInterface
+	public interface Fetcher<QUERY, T> extends Serializable {
+		List<T> fetch(QUERY query, int offset, int limit);
+	}
+
+	private final Grid<T> grid;
+	private final Fetcher<QUERY, T> fetcher;
+	private final ToIntFunction<QUERY> counter;
+	private final int pageSize;
+	private final int prefetchPages;
+	private final Executor prefetchExecutor;
+	private final PageCache<T> pageCache;
+	private final CallbackDataProvider<T, Void> dataProvider;
+
+	// Written under the session lock, read by the prefetch threads
+	private volatile QUERY query;
+
+	private BoundLazyGrid(Builder<MODEL, QUERY, T> builder) {
+		this.grid = builder.grid;
+		this.fetcher = builder.fetcher;
+		this.counter = builder.counter;
+		this.pageSize = builder.pageSize;
+		this.prefetchPages = builder.prefetchPages;
+		this.prefetchExecutor = builder.prefetchExecutor;
+		this.pageCache = new PageCache<>(builder.maxCachedPages);
+
+		if (builder.queryProvider == null) {
+			throw new RuntimeException("Please provide a queryProvider for this grid to know what to show. See `withQueryProvider`");
+		}
+
+		if (builder.fetcher == null || builder.counter == null) {
+			throw new RuntimeException("Please provide a fetcher and a counter to load the rows of this grid. See `withFetcher` and `withCounter`");
+		}
+
+		this.dataProvider = new CallbackDataProvider<>(this::fetch, this::count);
+		grid.setDataProvider(dataProvider);
+		grid.getColumns().forEach(column -> column.setSortable(false));
+
+		if (builder.readOnlyBinding && builder.binder instanceof ModelBinder) {
+			// Lightweight one-way binding, only invoked when the query changed
+			((ModelBinder<MODEL>) builder.binder).bindReadOnly(builder.queryProvider, this::setQuery);
+			return;
+		}
+
+		ReadOnlyHasValue<QUERY> readOnlyQuery = new ReadOnlyHasValue<>(newQuery -> {
+			if (!Objects.equals(query, newQuery)) {
+				setQuery(newQuery);
+			}
+		});
+		builder.binder
+				.forField(readOnlyQuery).bind(builder.queryProvider, (model, v) -> {
+			throw new UnsupportedOperationException("grids should not update the model directly!");
+		});
+	}
+
+	private void setQuery(QUERY newQuery) {
+		this.query = newQuery;
+		pageCache.clear();
+		dataProvider.refreshAll();
+	}
+
+	private int count(Query<T, Void> gridQuery) {
+		QUERY currentQuery = query;
+		if (currentQuery == null) {
+			return 0;
+		}
+		Integer count = pageCache.count();
+		if (count == null) {
+			count = counter.applyAsInt(currentQuery);
+			pageCache.setCount(count);
+		}
+		return count;
+	}
+
+	private Stream<T> fetch(Query<T, Void> gridQuery) {
+		QUERY currentQuery = query;
+		if (currentQuery == null) {
+			return Stream.empty();
+		}
+		int offset = gridQuery.getOffset();
+		int limit = gridQuery.getLimit();
+		int firstPage = offset / pageSize;
+		int lastPage = (offset + limit - 1) / pageSize;
+
+		List<T> rows = new ArrayList<>(limit);
+		for (int page = firstPage; page <= lastPage; page++) {
+			List<T> pageRows = pageCache.get(page);
+			if (pageRows == null) {
+				pageRows = fetcher.fetch(currentQuery, page * pageSize, pageSize);
+				if (pageRows == null) {
+					pageRows = Collections.emptyList();
+				}
+				pageCache.put(page, pageRows);
+			}
+			rows.addAll(pageRows);
+		}
+		prefetch(currentQuery, pageCache.generation(), lastPage + 1);
+
+		int from = Math.min(offset - firstPage * pageSize, rows.size());
+		int to = Math.min(from + limit, rows.size());
+		return rows.subList(from, to).stream();
+	}
+
+	private void prefetch(QUERY currentQuery, long currentGeneration, int fromPage) {
+		Integer count = pageCache.count();
+		for (int page = fromPage; page < fromPage + prefetchPages; page++) {
+			if (count != null && page * pageSize >= count) {
+				return;
+			}
+			if (!pageCache.startLoading(page)) {
+				continue;
+			}
+			int pageToLoad = page;
+			prefetchExecutor.execute(() -> {
+				try {
+					List<T> pageRows = fetcher.fetch(currentQuery, pageToLoad * pageSize, pageSize);
+					pageCache.put(pageToLoad, pageRows, currentGeneration);
+				} catch (RuntimeException e) {
+					LOG.log(Level.WARNING, "Prefetching page " + pageToLoad + " failed", e);
+				} finally {
+					pageCache.doneLoading(pageToLoad, currentGeneration);
+				}
+			});
+		}
+	}
+
+	/**
+	 * The least recently used pages of one grid, plus the count. Shared between the UI thread and the prefetch threads.
+	 */
+	private static class PageCache<T> implements Serializable {
+
+		private final Map<Integer, List<T>> pages;
+		private final Map<Integer, Boolean> loading = new LinkedHashMap<>();
+		private Integer count;
+		// Incremented for every new query, so pages of an older query are never cached
+		private long generation = 0;
+
+		private PageCache(int maxPages) {
+			this.pages = new LinkedHashMap<Integer, List<T>>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+					return size() > maxPages;
+				}
+			};
+		}
+
+		synchronized List<T> get(int page) {
+			return pages.get(page);
+		}
+
+		synchronized void put(int page, List<T> rows) {
+			pages.put(page, rows == null ? Collections.emptyList() : rows);
+		}
+
+		synchronized void put(int page, List<T> rows, long rowsGeneration) {
+			if (rowsGeneration == generation) {
+				put(page, rows);
+			}
+		}
+
+		synchronized long generation() {
+			return generation;
+		}
+
+		synchronized Integer count() {
+			return count;
+		}
+
+		synchronized void setCount(int count) {
+			this.count = count;
+		}
+
+		/**
+		 * @return false when the page is cached or already being loaded
+		 */
+		synchronized boolean startLoading(int page) {
+			if (pages.containsKey(page) || loading.containsKey(page)) {
+				return false;
+			}
+			loading.put(page, true);
+			return true;
+		}
+
+		synchronized void doneLoading(int page, long loadingGeneration) {
+			if (loadingGeneration == generation) {
+				loading.remove(page);
+			}
+		}
+
+		synchronized void clear() {
+			pages.clear();
+			// Loads of the previous query don't keep the pages of this one from loading
+			loading.clear();
+			count = null;
+			generation++;
+		}
+
+	}
+
+	public static <MODEL, QUERY, T> Builder<MODEL, QUERY, T> builder(Binder<MODEL> binder, Class<T> gridTypeClass) {
+		return new Builder<>(new Grid<>(gridTypeClass), binder);
+	}
+
+	public static <MODEL, QUERY, T> Builder<MODEL, QUERY, T> builder(Grid<T> grid, Binder<MODEL> binder) {
+		return new Builder<>(grid, binder);
+	}
+
+	public static class Builder<MODEL, QUERY, T> {
+
+		private final Binder<MODEL> binder;
+		private final Grid<T> grid;
+
+		private ValueProvider<MODEL, QUERY> queryProvider;
+		private Fetcher<QUERY, T> fetcher;
+		private ToIntFunction<QUERY> counter;
+		private int pageSize = 50;
+		private int maxCachedPages = 20;
+		private int prefetchPages = 1;
+		private Executor prefetchExecutor = ForkJoinPool.commonPool();
+		private boolean readOnlyBinding = false;
+
+		private Builder(Grid<T> grid, Binder<MODEL> binder) {
+			this.grid = grid;
+			this.binder = binder;
+		}
+
+		/**
+		 * The query descriptor in the model (filter, sort, version, ...). Must implement equals.
+		 */
+		public Builder<MODEL, QUERY, T> withQueryProvider(ValueProvider<MODEL, QUERY> queryProvider) {
+			this.queryProvider = queryProvider;
+			return this;
+		}
+
+		public Builder<MODEL, QUERY, T> withFetcher(Fetcher<QUERY, T> fetcher) {
+			this.fetcher = fetcher;
+			return this;
+		}
+
+		public Builder<MODEL, QUERY, T> withCounter(ToIntFunction<QUERY> counter) {
+			this.counter = counter;
+			return this;
+		}
+
+		/**
+		 * Rows per fetch, defaults to 50.
+		 */
+		public Builder<MODEL, QUERY, T> withPageSize(int pageSize) {
+			this.pageSize = pageSize;
+			return this;
+		}
+
+		/**
+		 * Maximum number of pages kept in memory for this grid, defaults to 20.
+		 */
+		public Builder<MODEL, QUERY, T> withMaxCachedPages(int maxCachedPages) {
+			this.maxCachedPages = maxCachedPages;
+			return this;
+		}
+
+		/**
+		 * Number of pages loaded in the background after the pages the grid asked for, defaults to 1 (0 disables).
+		 */
+		public Builder<MODEL, QUERY, T> withPrefetch(int prefetchPages, Executor prefetchExecutor) {
+			this.prefetchPages = prefetchPages;
+			this.prefetchExecutor = prefetchExecutor;
+			return this;
+		}
+
+		/**
+		 * Use a lightweight read-only binding instead of a full Vaadin Binder binding.
+		 * <p>
+		 * Only has an effect for binders created by bindModelAndView (see ModelBinder).
+		 */
+		public Builder<MODEL, QUERY, T> withReadOnlyBinding() {
+			this.readOnlyBinding = true;
+			return this;
+		}
+
+		public Builder<MODEL, QUERY, T> forGrid(Consumer<Grid<T>> consumer) {
+			consumer.accept(grid);
+			return this;
+		}
+
+		public Grid<T> build() {
+			BoundLazyGrid<MODEL, QUERY, T> boundLazyGrid = new BoundLazyGrid<>(this);
+			return boundLazyGrid.grid;
+		}
+
+	}
+
+}
@@ -0,0 +1,294 @@
+package mvu.support.extra;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.vaadin.data.Binder;
+import com.vaadin.data.ReadOnlyHasValue;
+import com.vaadin.data.ValueProvider;
+import com.vaadin.ui.AbstractOrderedLayout;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.VerticalLayout;
+
+import mvu.support.ComponentMoves;
+import mvu.support.ModelBinder;
+
+/**
+ * A layout with one child component per item of a list in the model.
+ * <p>
+ * Children are identified by a key. When the list changes only the difference is applied: children of new keys are
+ * created, children of removed keys are removed and the others are kept (with their own state, e.g. a child
+ * bindModelAndView) and only moved when their position changed. The children which stay in the same relative order
+ * (the longest increasing subsequence) are not touched at all.
+ *
+ * <pre>
+ * Layout heros = BoundList.builder(binder, Person.class)
+ *         .withValueProvider(model -> model.heros)
+ *         .withKey(person -> person.id)
+ *         .withChildView(person -> HeroCard.view(dispatcher, person))
+ *         .build();
+ * </pre>
+ */
+public class BoundList<MODEL, ITEM> implements Serializable {
+
+	private final AbstractOrderedLayout layout;
+	private final Function<ITEM, ?> keyFunction;
+	private final Function<ITEM, Component> childView;
+	private final BiConsumer<Component, ITEM> childUpdate;
+
+	private final Map<Object, Child<ITEM>> children = new HashMap<>();
+	private List<Object> order = new ArrayList<>();
+
+	private BoundList(Builder<MODEL, ITEM> builder) {
+		this.layout = builder.layout;
+		this.keyFunction = builder.keyFunction;
+		this.childView = builder.childView;
+		this.childUpdate = builder.childUpdate;
+
+		if (builder.valueProvider == null) {
+			throw new RuntimeException("Please provide a valueProvider for this list to actually show something. See `withValueProvider`");
+		}
+
+		if (builder.keyFunction == null) {
+			throw new RuntimeException("Please provide a key function to identify the children of this list. See `withKey`");
+		}
+
+		if (builder.childView == null) {
+			throw new RuntimeException("Please provide a childView to render the items of this list. See `withChildView`");
+		}
+
+		if (builder.readOnlyBinding && builder.binder instanceof ModelBinder) {
+			// Lightweight one-way binding, bypassing the Vaadin Binder machinery
+			((ModelBinder<MODEL>) builder.binder).bindReadOnly(builder.valueProvider, this::render);
+			return;
+		}
+
+		ReadOnlyHasValue<List<ITEM>> readOnlyList = new ReadOnlyHasValue<>(this::render, Collections.emptyList());
+		builder.binder
+				.forField(readOnlyList).bind(builder.valueProvider, (model, v) -> {
+			throw new UnsupportedOperationException("list fields should not update the model directly!");
+		});
+	}
+
+	private void render(List<ITEM> items) {
+		Map<Object, ITEM> newItems = new LinkedHashMap<>();
+		if (items != null) {
+			for (ITEM item : items) {
+				Object key = keyFunction.apply(item);
+				if (newItems.put(key, item) != null) {
+					throw new RuntimeException(String.format("Duplicate key '%s' in the list. Keys must be unique, see `withKey`", key));
+				}
+			}
+		}
+
+		// Moving a child detaches it for a moment, which must not end its own bindModelAndView
+		ComponentMoves.move(() -> applyDifference(newItems));
+	}
+
+	private void applyDifference(Map<Object, ITEM> newItems) {
+		// Step 1: remove the children which are gone
+		Map<Object, Integer> oldPositions = new HashMap<>();
+		for (Object key : order) {
+			if (newItems.containsKey(key)) {
+				oldPositions.put(key, oldPositions.size());
+			} else {
+				layout.removeComponent(children.remove(key).component);
+			}
+		}
+
+		// Step 2: the children which keep their relative order don't move
+		List<Object> newOrder = new ArrayList<>(newItems.keySet());
+		int[] sources = new int[newOrder.size()];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = oldPositions.getOrDefault(newOrder.get(i), -1);
+		}
+		Set<Object> stable = new HashSet<>();
+		for (int position : longestIncreasingSubsequence(sources)) {
+			stable.add(newOrder.get(position));
+		}
+
+		// Step 3: create the new children and take out the ones which move, only the stable children remain
+		for (Object key : newOrder) {
+			Child<ITEM> child = children.get(key);
+			if (child == null) {
+				ITEM item = newItems.get(key);
+				children.put(key, new Child<>(item, childView.apply(item)));
+			} else if (!stable.contains(key)) {
+				layout.removeComponent(child.component);
+			}
+		}
+
+		// Step 4: from the end, insert the new and moved children in front of their successor. Everything in front
+		// of the successor is stable, so its index follows from the count instead of a lookup in the layout
+		int nextIndex = layout.getComponentCount();
+		for (int i = newOrder.size() - 1; i >= 0; i--) {
+			Object key = newOrder.get(i);
+			ITEM item = newItems.get(key);
+			Child<ITEM> child = children.get(key);
+			if (stable.contains(key)) {
+				nextIndex--;
+			} else {
+				layout.addComponent(child.component, nextIndex);
+			}
+			if (child.item != item && !Objects.equals(child.item, item)) {
+				updateChild(child, item);
+			}
+		}
+
+		order = newOrder;
+	}
+
+	private void updateChild(Child<ITEM> child, ITEM item) {
+		child.item = item;
+		if (childUpdate != null) {
+			childUpdate.accept(child.component, item);
+		} else {
+			Component component = childView.apply(item);
+			layout.replaceComponent(child.component, component);
+			child.component = component;
+		}
+	}
+
+	/**
+	 * Positions (in the sources) of the longest increasing subsequence, ignoring the -1 (new) entries.
+	 */
+	private static int[] longestIncreasingSubsequence(int[] sources) {
+		int[] tails = new int[sources.length];
+		int[] previous = new int[sources.length];
+		int length = 0;
+		for (int i = 0; i < sources.length; i++) {
+			if (sources[i] < 0) {
+				continue;
+			}
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (sources[tails[middle]] < sources[i]) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			previous[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length) {
+				length++;
+			}
+		}
+		int[] subsequence = new int[length];
+		int position = length > 0 ? tails[length - 1] : -1;
+		for (int i = length - 1; i >= 0; i--) {
+			subsequence[i] = position;
+			position = previous[position];
+		}
+		return subsequence;
+	}
+
+	public static <MODEL, ITEM> Builder<MODEL, ITEM> builder(Binder<MODEL> binder, Class<ITEM> itemClass) {
+		return new Builder<>(binder, itemClass);
+	}
+
+	public static <MODEL, ITEM> Builder<MODEL, ITEM> builder(AbstractOrderedLayout layout, Binder<MODEL> binder, Class<ITEM> itemClass) {
+		return new Builder<>(layout, binder, itemClass);
+	}
+
+	private static class Child<ITEM> implements Serializable {
+
+		private ITEM item;
+		private Component component;
+
+		private Child(ITEM item, Component component) {
+			this.item = item;
+			this.component = component;
+		}
+
+	}
+
+	public static class Builder<MODEL, ITEM> implements Serializable {
+
+		private final Binder<MODEL> binder;
+		private final AbstractOrderedLayout layout;
+		private final Class<ITEM> itemClass;
+
+		private ValueProvider<MODEL, List<ITEM>> valueProvider;
+		private Function<ITEM, ?> keyFunction;
+		private Function<ITEM, Component> childView;
+		private BiConsumer<Component, ITEM> childUpdate;
+		private boolean readOnlyBinding = false;
+
+		private Builder(Binder<MODEL> binder, Class<ITEM> itemClass) {
+			this(new VerticalLayout(), binder, itemClass);
+		}
+
+		private Builder(AbstractOrderedLayout layout, Binder<MODEL> binder, Class<ITEM> itemClass) {
+			this.layout = layout;
+			this.binder = binder;
+			this.itemClass = itemClass;
+		}
+
+		public Builder<MODEL, ITEM> withValueProvider(ValueProvider<MODEL, List<ITEM>> valueProvider) {
+			this.valueProvider = valueProvider;
+			return this;
+		}
+
+		/**
+		 * Identifies the child of an item across updates (e.g. the id of an entity).
+		 */
+		public Builder<MODEL, ITEM> withKey(Function<ITEM, ?> keyFunction) {
+			this.keyFunction = keyFunction;
+			return this;
+		}
+
+		/**
+		 * Creates the child component for a new key, typically a child bindModelAndView.
+		 */
+		public Builder<MODEL, ITEM> withChildView(Function<ITEM, Component> childView) {
+			this.childView = childView;
+			return this;
+		}
+
+		/**
+		 * Updates an existing child when its item changed (e.g. by dispatching an action to it).
+		 * <p>
+		 * Without a childUpdate the child of a changed item is created again with the childView.
+		 */
+		public Builder<MODEL, ITEM> withChildUpdate(BiConsumer<Component, ITEM> childUpdate) {
+			this.childUpdate = childUpdate;
+			return this;
+		}
+
+		/**
+		 * Use a lightweight read-only binding instead of a full Vaadin Binder binding.
+		 * <p>
+		 * Only has an effect for binders created by bindModelAndView (see ModelBinder).
+		 */
+		public Builder<MODEL, ITEM> withReadOnlyBinding() {
+			this.readOnlyBinding = true;
+			return this;
+		}
+
+		public Builder<MODEL, ITEM> forLayout(Consumer<AbstractOrderedLayout> consumer) {
+			consumer.accept(layout);
+			return this;
+		}
+
+		public AbstractOrderedLayout build() {
+			BoundList<MODEL, ITEM> boundList = new BoundList<>(this);
+			return boundList.layout;
+		}
+
+	}
+
+}
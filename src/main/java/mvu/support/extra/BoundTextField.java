@@ -1,15 +1,19 @@
 package mvu.support.extra;
 
 import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import com.vaadin.data.Binder;
 import com.vaadin.data.ValueProvider;
+import com.vaadin.shared.ui.ValueChangeMode;
 import com.vaadin.ui.TextField;
 
 import mvu.support.Action;
 import mvu.support.BroadcastAction;
+import mvu.support.CoalesceMode;
+import mvu.support.Coalescer;
 import mvu.support.Dispatcher;
 
 public class BoundTextField<MODEL> implements Serializable {
@@ -25,19 +29,46 @@ public class BoundTextField<MODEL> implements Serializable {
 			throw new RuntimeException("Missing dispatchers. See `withDispatchers`");
 		}
 
-		binder.forField(textField).bind(builder.valueProvider, (model, s) -> {
-			Action action = builder.valueConsumer.apply(s);
-			if (action instanceof BroadcastAction) {
-				builder.dispatcher.getAllDispatchers().forEach(dispatcher ->
-						dispatcher.invoke(action));
-			} else {
-				builder.dispatcher.getDispatcher().invoke(action);
-			}
-		});
+		if (builder.valueChangeMode != null) {
+			textField.setValueChangeMode(builder.valueChangeMode);
+		}
+		if (builder.valueChangeTimeout > 0) {
+			textField.setValueChangeTimeout(builder.valueChangeTimeout);
+		}
 
+		if (builder.serverCoalescing && builder.coalesceMode != null) {
+			// Bursts of value changes only result in one dispatch of the latest value
+			Coalescer<Action> coalescer = new Coalescer<>(builder.coalesceMode, builder.valueChangeTimeout, TimeUnit.MILLISECONDS);
+			binder.forField(textField).bind(builder.valueProvider, (model, s) ->
+					coalescer.offer(builder.valueConsumer.apply(s), action -> dispatch(builder.dispatcher, action)));
+			textField.addBlurListener(event -> coalescer.flush());
+		} else {
+			binder.forField(textField).bind(builder.valueProvider, (model, s) ->
+					dispatch(builder.dispatcher, builder.valueConsumer.apply(s)));
+		}
+
+		if (builder.asyncValidator != null) {
+			AsyncValidation<String> asyncValidation = new AsyncValidation<>(
+					builder.asyncValidator, builder.asyncValidationDebounce, builder.validationStatusAction, builder.dispatcher);
+			textField.addValueChangeListener(event -> {
+				if (event.isUserOriginated()) {
+					asyncValidation.validate(event.getValue());
+				}
+			});
+			textField.addBlurListener(event -> asyncValidation.flush());
+		}
 
 	}
 
+	private static void dispatch(Dispatcher dispatcher, Action action) {
+		if (action instanceof BroadcastAction) {
+			dispatcher.getAllDispatchers().forEach(d ->
+					d.invoke(action));
+		} else {
+			dispatcher.getDispatcher().invoke(action);
+		}
+	}
+
 	public static <MODEL> Builder<MODEL> builder(Binder<MODEL> binder) {
 		return new Builder<>(binder);
 	}
@@ -53,6 +84,13 @@ public class BoundTextField<MODEL> implements Serializable {
 		private ValueProvider<MODEL, String> valueProvider;
 		private Function<String, Action> valueConsumer;
 		private Dispatcher dispatcher;
+		private ValueChangeMode valueChangeMode;
+		private int valueChangeTimeout;
+		private CoalesceMode coalesceMode;
+		private boolean serverCoalescing;
+		private AsyncValidator<String> asyncValidator;
+		private int asyncValidationDebounce;
+		private Function<ValidationState<String>, Action> validationStatusAction;
 
 		private Builder(Binder<MODEL> binder) {
 			this(binder, new TextField());
@@ -79,6 +117,81 @@ public class BoundTextField<MODEL> implements Serializable {
 			return this;
 		}
 
+		/**
+		 * Client side value change mode (see TextField#setValueChangeMode).
+		 */
+		public Builder<MODEL> withValueChangeMode(ValueChangeMode valueChangeMode) {
+			this.valueChangeMode = valueChangeMode;
+			return this;
+		}
+
+		/**
+		 * Only dispatch once the user stopped typing for the given time, e.g. for search-as-you-type fields.
+		 * <p>
+		 * The client only sends the value after the pause (LAZY mode), or right away when the field loses focus. The
+		 * server dispatches what arrives immediately, unless #withServerCoalescing.
+		 */
+		public Builder<MODEL> withDebounce(int millis) {
+			this.valueChangeMode = ValueChangeMode.LAZY;
+			this.valueChangeTimeout = millis;
+			this.coalesceMode = CoalesceMode.DEBOUNCE;
+			return this;
+		}
+
+		/**
+		 * Dispatch at most one action (the latest value) per time window while the user is typing.
+		 * <p>
+		 * The client sends the value at most once per window (TIMEOUT mode), or right away when the field loses focus.
+		 * The server dispatches what arrives immediately, unless #withServerCoalescing.
+		 */
+		public Builder<MODEL> withThrottle(int millis) {
+			this.valueChangeMode = ValueChangeMode.TIMEOUT;
+			this.valueChangeTimeout = millis;
+			this.coalesceMode = CoalesceMode.THROTTLE;
+			return this;
+		}
+
+		/**
+		 * Also debounce or throttle on the server (see Coalescer), with the window of #withDebounce or #withThrottle.
+		 * Whatever still arrives in bursts (e.g. values set by the application, or a client which sends every
+		 * keystroke) results in one action with the latest value. A pending value is dispatched right away when the
+		 * field loses focus.
+		 * <p>
+		 * With #withDebounce every value waits for the window twice, once on the client and once on the server.
+		 */
+		public Builder<MODEL> withServerCoalescing() {
+			this.serverCoalescing = true;
+			return this;
+		}
+
+		/**
+		 * Only dispatch when the field loses focus (BLUR mode).
+		 */
+		public Builder<MODEL> withCommitOnBlur() {
+			this.valueChangeMode = ValueChangeMode.BLUR;
+			this.coalesceMode = null;
+			return this;
+		}
+
+		/**
+		 * Validate the input in the background, e.g. a uniqueness check against a backend, without blocking the Binder.
+		 * <p>
+		 * The check starts once the user stopped typing for debounceMillis and runs as an AsyncAction (so it requires
+		 * Vaadin Push). A newer value cancels the running check and the results of the last 32 values are cached.
+		 * The status (PENDING, VALID or INVALID with the error message) reaches the model through the statusAction.
+		 *
+		 * <pre>
+		 * .withAsyncValidator(userService::checkAvailable, 300, UserNameValidated::new)
+		 * </pre>
+		 */
+		public Builder<MODEL> withAsyncValidator(AsyncValidator<String> asyncValidator, int debounceMillis,
+												 Function<ValidationState<String>, Action> statusAction) {
+			this.asyncValidator = asyncValidator;
+			this.asyncValidationDebounce = debounceMillis;
+			this.validationStatusAction = statusAction;
+			return this;
+		}
+
 		public Builder<MODEL> forBinder(Consumer<Binder<MODEL>> withBinder) {
 			withBinder.accept(binder);
 			return this;
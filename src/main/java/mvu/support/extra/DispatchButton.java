@@ -8,13 +8,35 @@ import com.vaadin.ui.Button;
 
 import mvu.support.Action;
 import mvu.support.Dispatcher;
+import mvu.support.ModelViewBinderKt;
 
 public class DispatchButton implements Serializable {
 
+	/**
+	 * What to do with clicks while the async work of a previous click is still running, see Builder#withInFlightGuard.
+	 */
+	public enum InFlightPolicy {
+		/**
+		 * Drop the clicks.
+		 */
+		IGNORE,
+
+		/**
+		 * Remember that the button was clicked and dispatch once more (a fresh action) when the running work is done.
+		 */
+		COALESCE
+	}
+
 	private final Button button;
+	private final Builder builder;
+
+	// Only accessed under the session lock
+	private boolean inFlight = false;
+	private boolean clickedWhileInFlight = false;
 
 	private DispatchButton(Builder builder) {
 		button = builder.button;
+		this.builder = builder;
 
 		if (builder.caption != null) {
 			button.setCaption(builder.caption);
@@ -24,12 +46,39 @@ public class DispatchButton implements Serializable {
 			throw new RuntimeException("An action supplier must be provided for this button to actually do something");
 		}
 
-		button.addClickListener(clickEvent ->
-			builder.dispatcher.getDispatcher().invoke((builder.actionSupplier.get()))
-		);
+		if (builder.inFlightPolicy == null) {
+			button.addClickListener(clickEvent ->
+				builder.dispatcher.getDispatcher().invoke((builder.actionSupplier.get()))
+			);
+		} else {
+			button.addClickListener(clickEvent -> {
+				if (!inFlight) {
+					dispatchGuarded();
+				} else if (builder.inFlightPolicy == InFlightPolicy.COALESCE) {
+					clickedWhileInFlight = true;
+				}
+			});
+		}
 
 	}
 
+	private void dispatchGuarded() {
+		inFlight = true;
+		if (builder.disableWhileInFlight) {
+			button.setEnabled(false);
+		}
+		ModelViewBinderKt.dispatchTracked(builder.dispatcher.getDispatcher(), builder.actionSupplier.get(), () -> {
+			inFlight = false;
+			if (builder.disableWhileInFlight) {
+				button.setEnabled(true);
+			}
+			if (clickedWhileInFlight) {
+				clickedWhileInFlight = false;
+				dispatchGuarded();
+			}
+		});
+	}
+
 	public static DispatchButton.Builder builder(Dispatcher dispatcher) {
 		return new DispatchButton.Builder(dispatcher);
 	}
@@ -45,7 +94,8 @@ public class DispatchButton implements Serializable {
 
 		private String caption;
 		private Supplier<Action> actionSupplier;
-
+		private InFlightPolicy inFlightPolicy;
+		private boolean disableWhileInFlight;
 
 		private Builder(Dispatcher dispatcher) {
 			this(new Button(), dispatcher);
@@ -71,6 +121,20 @@ public class DispatchButton implements Serializable {
 			return this;
 		}
 
+		/**
+		 * Guard against double clicks: while the AsyncAction (or Cmd) started by a click is running, further clicks
+		 * are ignored or coalesced into one. The guard is released once its Left or Right result is dispatched, or when
+		 * there won't be one (the work failed or was cancelled, the result was dropped, the component detached).
+		 *
+		 * @param policy               What to do with the clicks in the meantime
+		 * @param disableWhileInFlight Also disable the button in the meantime
+		 */
+		public Builder withInFlightGuard(InFlightPolicy policy, boolean disableWhileInFlight) {
+			this.inFlightPolicy = policy;
+			this.disableWhileInFlight = disableWhileInFlight;
+			return this;
+		}
+
 		public Button build() {
 			DispatchButton dispatchButton = new DispatchButton(this);
 			return dispatchButton.button;
@@ -0,0 +1,489 @@
+package mvu.support.extra;
+
+import static mvu.support.ActionKt.fromLeft;
+import static mvu.support.ActionKt.fromRight;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import mvu.support.AsyncActionResult;
+
+/**
+ * A GET request for AsyncAction#perform, with the decoded body as Right and a Failure as Left.
+ * <p>
+ * The requests of an HttpFetch share one java.net.http.HttpClient: connections are pooled and reused, and no thread
+ * is blocked on a socket while the response is on its way. The body is decoded while its bytes come in (see
+ * StreamDecoder) and is never kept as a whole.
+ * <p>
+ * With #withRevalidationCache the last body of every url is kept together with its ETag and Last-Modified, the next
+ * request for the url is conditional and a 304 Not Modified returns the kept body without downloading or decoding it
+ * again. Bodies are shared between all requests (and so all sessions), they must not be modified.
+ * <p>
+ * #get waits for the result on the thread which runs the AsyncAction, cancelling the AsyncAction cancels the request.
+ * #getAsync does not wait at all. An HttpFetch is immutable, create one per endpoint and keep it in a constant:
+ *
+ * <pre>
+ * private static final HttpFetch&lt;List&lt;Person&gt;&gt; PERSONS = HttpFetch
+ *         .builder(StreamDecoder.delimited(',', Person::parse))
+ *         .build();
+ *
+ * public AsyncActionResult&lt;LoadError, Loaded&gt; perform() {
+ *     return PERSONS.get(url, failure -&gt; new LoadError(failure.getMessage()), Loaded::new);
+ * }
+ * </pre>
+ */
+public final class HttpFetch<T> {
+
+	/**
+	 * Error bodies are cut off after this many characters (the rest is still read, but not kept).
+	 */
+	private static final int ERROR_BODY_LIMIT = 4096;
+
+	private static final StreamDecoder<String> ERROR_BODY = () -> new StreamDecoder.Decoding<String>() {
+
+		private final StringBuilder error = new StringBuilder();
+
+		@Override
+		public void feed(CharBuffer chunk) {
+			int keep = Math.min(chunk.remaining(), ERROR_BODY_LIMIT - error.length());
+			error.append(chunk, 0, keep);
+		}
+
+		@Override
+		public String finish() {
+			return error.toString();
+		}
+
+	};
+
+	private final HttpClient client;
+	private final StreamDecoder<T> decoder;
+	private final Map<String, String> headers;
+	private final Duration requestTimeout;
+	private final Map<String, Validated<T>> revalidationCache;
+
+	private HttpFetch(Builder<T> builder) {
+		this.client = HttpClient.newBuilder()
+				.connectTimeout(Duration.ofMillis(builder.connectTimeout))
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.build();
+		this.decoder = builder.decoder;
+		this.headers = new LinkedHashMap<>(builder.headers);
+		this.requestTimeout = Duration.ofMillis(builder.requestTimeout);
+		this.revalidationCache = builder.revalidationCacheSize > 0 ? lruCache(builder.revalidationCacheSize) : null;
+	}
+
+	/**
+	 * GET the url, never throws. When the body did not change (304) this is the same instance as last time.
+	 */
+	public AsyncActionResult<Failure, T> get(String url) {
+		return toResult(await(url));
+	}
+
+	/**
+	 * Same as #get(String) without waiting for the result, the future never completes exceptionally.
+	 */
+	public CompletableFuture<AsyncActionResult<Failure, T>> getAsync(String url) {
+		return send(url).handle((response, e) -> toResult(e != null ? failed(Failure.NO_RESPONSE, e) : response.body()));
+	}
+
+	/**
+	 * GET the url and map the result to the Left and Right actions of an AsyncAction.
+	 */
+	public <LEFT, RIGHT> AsyncActionResult<LEFT, RIGHT> get(String url, Function<Failure, LEFT> left, Function<T, RIGHT> right) {
+		return get(url, left, right, null);
+	}
+
+	/**
+	 * Same as #get(String, Function, Function), where a body which did not change since the previous request (see
+	 * #withRevalidationCache) results in the unchanged action instead, so the model can be left as it is.
+	 */
+	public <LEFT, RIGHT> AsyncActionResult<LEFT, RIGHT> get(String url, Function<Failure, LEFT> left, Function<T, RIGHT> right,
+															 Supplier<RIGHT> unchanged) {
+		Response<T> response = await(url);
+		if (response.failure != null) {
+			return fromLeft(left.apply(response.failure));
+		}
+		if (response.unchanged && unchanged != null) {
+			return fromRight(unchanged.get());
+		}
+		return fromRight(right.apply(response.body));
+	}
+
+	private static <T> AsyncActionResult<Failure, T> toResult(Response<T> response) {
+		return response.failure != null ? fromLeft(response.failure) : fromRight(response.body);
+	}
+
+	private Response<T> await(String url) {
+		CompletableFuture<HttpResponse<Response<T>>> exchange = send(url);
+		try {
+			return exchange.get().body();
+		} catch (InterruptedException e) {
+			// The AsyncAction is cancelled, nobody waits for the response anymore
+			exchange.cancel(true);
+			Thread.currentThread().interrupt();
+			return failed(Failure.NO_RESPONSE, e);
+		} catch (ExecutionException e) {
+			return failed(Failure.NO_RESPONSE, e.getCause());
+		}
+	}
+
+	private CompletableFuture<HttpResponse<Response<T>>> send(String url) {
+		Validated<T> cached = cached(url);
+		try {
+			HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+					.timeout(requestTimeout)
+					.GET();
+			headers.forEach(request::header);
+			if (cached != null) {
+				if (cached.eTag != null) {
+					request.header("If-None-Match", cached.eTag);
+				}
+				if (cached.lastModified != null) {
+					request.header("If-Modified-Since", cached.lastModified);
+				}
+			}
+			return client.sendAsync(request.build(), responseInfo -> bodySubscriber(url, cached, responseInfo));
+		} catch (RuntimeException e) {
+			// An invalid url or header
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Decides by the status and headers what to do with the body, which has not arrived yet.
+	 */
+	private HttpResponse.BodySubscriber<Response<T>> bodySubscriber(String url, Validated<T> cached, HttpResponse.ResponseInfo responseInfo) {
+		int status = responseInfo.statusCode();
+		if (status == 304 && cached != null) {
+			return HttpResponse.BodySubscribers.replacing(new Response<>(cached.body, true, null));
+		}
+		Charset charset = charset(responseInfo.headers().firstValue("Content-Type").orElse(null));
+		if (status < 200 || status >= 300) {
+			return new DecodingSubscriber<>(ERROR_BODY.start(), charset,
+					error -> new Response<>(null, false, new Failure(status, "Status " + status + ": " + error, null)),
+					e -> failed(status, e));
+		}
+		return new DecodingSubscriber<>(decoder.start(), charset,
+				body -> {
+					cache(url, responseInfo.headers(), body);
+					return new Response<>(body, false, null);
+				},
+				e -> failed(status, e));
+	}
+
+	private static <T> Response<T> failed(int status, Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		Exception exception = cause instanceof Exception ? (Exception) cause : new IOException(cause);
+		return new Response<>(null, false, new Failure(status, String.valueOf(cause.getMessage()), exception));
+	}
+
+	private Validated<T> cached(String url) {
+		if (revalidationCache == null) {
+			return null;
+		}
+		synchronized (revalidationCache) {
+			return revalidationCache.get(url);
+		}
+	}
+
+	private void cache(String url, HttpHeaders responseHeaders, T body) {
+		if (revalidationCache == null) {
+			return;
+		}
+		String eTag = responseHeaders.firstValue("ETag").orElse(null);
+		String lastModified = responseHeaders.firstValue("Last-Modified").orElse(null);
+		String cacheControl = responseHeaders.firstValue("Cache-Control").orElse(null);
+		boolean noStore = cacheControl != null && cacheControl.toLowerCase().contains("no-store");
+		synchronized (revalidationCache) {
+			if ((eTag == null && lastModified == null) || noStore) {
+				revalidationCache.remove(url);
+			} else {
+				revalidationCache.put(url, new Validated<>(eTag, lastModified, body));
+			}
+		}
+	}
+
+	private static <T> Map<String, Validated<T>> lruCache(int maxEntries) {
+		return new LinkedHashMap<String, Validated<T>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Validated<T>> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	private static Charset charset(String contentType) {
+		if (contentType != null) {
+			for (String parameter : contentType.split(";")) {
+				String trimmed = parameter.trim();
+				if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+					try {
+						return Charset.forName(trimmed.substring(8).replace("\"", ""));
+					} catch (IllegalArgumentException e) {
+						break;
+					}
+				}
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	/**
+	 * Feeds the bytes of the body to a Decoding as they arrive, one buffer list at a time.
+	 * <p>
+	 * A character split over two buffers is completed with the next one. When the decoding fails, the rest of the body
+	 * is cancelled (which closes the connection).
+	 */
+	private static final class DecodingSubscriber<B, R> implements HttpResponse.BodySubscriber<R> {
+
+		private final StreamDecoder.Decoding<B> decoding;
+		private final CharsetDecoder charsetDecoder;
+		private final Function<B, R> onBody;
+		private final Function<Exception, R> onError;
+		private final CompletableFuture<R> result = new CompletableFuture<>();
+		private final CharBuffer chars = CharBuffer.allocate(8192);
+
+		private Flow.Subscription subscription;
+		// The start of a character which continues in the next buffer
+		private ByteBuffer incomplete;
+
+		private DecodingSubscriber(StreamDecoder.Decoding<B> decoding, Charset charset, Function<B, R> onBody,
+								   Function<Exception, R> onError) {
+			this.decoding = decoding;
+			this.charsetDecoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.onBody = onBody;
+			this.onError = onError;
+		}
+
+		@Override
+		public CompletionStage<R> getBody() {
+			return result;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(1);
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> buffers) {
+			if (result.isDone()) {
+				return;
+			}
+			try {
+				for (ByteBuffer buffer : buffers) {
+					decode(join(buffer), false);
+				}
+			} catch (RuntimeException e) {
+				subscription.cancel();
+				result.complete(onError.apply(e));
+				return;
+			}
+			subscription.request(1);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			if (!result.isDone()) {
+				result.complete(onError.apply(throwable instanceof Exception ? (Exception) throwable : new IOException(throwable)));
+			}
+		}
+
+		@Override
+		public void onComplete() {
+			if (result.isDone()) {
+				return;
+			}
+			try {
+				decode(incomplete != null ? incomplete : ByteBuffer.allocate(0), true);
+				charsetDecoder.flush(chars);
+				feed();
+				result.complete(onBody.apply(decoding.finish()));
+			} catch (RuntimeException e) {
+				result.complete(onError.apply(e));
+			}
+		}
+
+		private ByteBuffer join(ByteBuffer buffer) {
+			if (incomplete == null) {
+				return buffer;
+			}
+			ByteBuffer joined = ByteBuffer.allocate(incomplete.remaining() + buffer.remaining());
+			joined.put(incomplete).put(buffer).flip();
+			incomplete = null;
+			return joined;
+		}
+
+		private void decode(ByteBuffer bytes, boolean endOfInput) {
+			while (true) {
+				boolean overflow = charsetDecoder.decode(bytes, chars, endOfInput).isOverflow();
+				feed();
+				if (!overflow) {
+					break;
+				}
+			}
+			if (bytes.hasRemaining()) {
+				incomplete = ByteBuffer.allocate(bytes.remaining()).put(bytes).flip();
+			}
+		}
+
+		private void feed() {
+			chars.flip();
+			decoding.feed(chars);
+			chars.clear();
+		}
+
+	}
+
+	/**
+	 * A body with the validators (ETag, Last-Modified) the server sent along.
+	 */
+	private static final class Validated<T> {
+
+		private final String eTag;
+		private final String lastModified;
+		private final T body;
+
+		private Validated(String eTag, String lastModified, T body) {
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.body = body;
+		}
+
+	}
+
+	private static final class Response<T> {
+
+		private final T body;
+		private final boolean unchanged;
+		private final Failure failure;
+
+		private Response(T body, boolean unchanged, Failure failure) {
+			this.body = body;
+			this.unchanged = unchanged;
+			this.failure = failure;
+		}
+
+	}
+
+	/**
+	 * Why a request failed: an unexpected status, or an I/O (or decoding) problem.
+	 */
+	public static final class Failure {
+
+		/**
+		 * The status when the request failed before a response came in.
+		 */
+		public static final int NO_RESPONSE = -1;
+
+		private final int status;
+		private final String message;
+		private final Exception cause;
+
+		private Failure(int status, String message, Exception cause) {
+			this.status = status;
+			this.message = message;
+			this.cause = cause;
+		}
+
+		/**
+		 * The HTTP status, or NO_RESPONSE.
+		 */
+		public int getStatus() {
+			return status;
+		}
+
+		/**
+		 * The status and (the start of) the error body, or the message of the exception.
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 * The exception, null when the server answered with an unexpected status.
+		 */
+		public Exception getCause() {
+			return cause;
+		}
+
+	}
+
+	public static <T> Builder<T> builder(StreamDecoder<T> decoder) {
+		return new Builder<>(decoder);
+	}
+
+	public static class Builder<T> {
+
+		private final StreamDecoder<T> decoder;
+		private final Map<String, String> headers = new LinkedHashMap<>();
+		private int connectTimeout = 10_000;
+		private int requestTimeout = 60_000;
+		private int revalidationCacheSize = 0;
+
+		private Builder(StreamDecoder<T> decoder) {
+			this.decoder = decoder;
+		}
+
+		public Builder<T> withHeader(String name, String value) {
+			headers.put(name, value);
+			return this;
+		}
+
+		/**
+		 * Defaults to 10 seconds.
+		 */
+		public Builder<T> withConnectTimeout(int millis) {
+			this.connectTimeout = millis;
+			return this;
+		}
+
+		/**
+		 * The maximum time until the response (status and headers) comes in, defaults to 60 seconds.
+		 */
+		public Builder<T> withRequestTimeout(int millis) {
+			this.requestTimeout = millis;
+			return this;
+		}
+
+		/**
+		 * Keep the body of the last maxEntries urls and revalidate them with conditional requests (If-None-Match,
+		 * If-Modified-Since) instead of downloading them again. Only bodies with an ETag or Last-Modified are kept.
+		 */
+		public Builder<T> withRevalidationCache(int maxEntries) {
+			this.revalidationCacheSize = maxEntries;
+			return this;
+		}
+
+		public HttpFetch<T> build() {
+			return new HttpFetch<>(this);
+		}
+
+	}
+
+}
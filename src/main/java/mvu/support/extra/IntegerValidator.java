@@ -4,19 +4,17 @@ import com.vaadin.data.ValidationResult;
 import com.vaadin.data.Validator;
 import com.vaadin.data.ValueContext;
 
+/**
+ * @see Validators#integer()
+ */
 public class IntegerValidator implements Validator<String> {
+
+	private static final Validator<String> INTEGER = Validators.integer();
+
 	@Override
 	public ValidationResult apply(String s, ValueContext valueContext) {
-		try {
-			if (s == null || s.isEmpty()) {
-				return ValidationResult.ok();
-			}
-			Integer.valueOf(s);
-			return ValidationResult.ok();
-		} catch (NumberFormatException nfe) {
-			return ValidationResult.error(String.format("Cannot convert %s into an integer", s));
-		} catch (Exception e) {
-			return ValidationResult.error("Unknown exception converting your input");
-		}
+		ValidationResult result = INTEGER.apply(s, valueContext);
+		// The message names the input, so it is only built for invalid input
+		return result.isError() ? ValidationResult.error(String.format("Cannot convert %s into an integer", s)) : result;
 	}
 }
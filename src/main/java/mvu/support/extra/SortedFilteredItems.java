@@ -0,0 +1,256 @@
+package mvu.support.extra;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import com.vaadin.server.SerializableConsumer;
+import com.vaadin.server.SerializableFunction;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.UI;
+
+/**
+ * The sorted and filtered view on the items of a BoundGrid, kept up to date incrementally.
+ * <p>
+ * While the sort and filter stay the same, a few changed rows are removed from and inserted into the sorted view with
+ * a binary search under the session lock. Without a sort the view follows the order of the items, and only the changed
+ * rows go through the filter again. A new sort or filter, or a large change, is computed on a worker thread instead. Only the final swap-in takes the session lock, and only when no newer version arrived meanwhile.
+ */
+class SortedFilteredItems<T> implements Serializable {
+
+	/**
+	 * Below this size everything is computed right away, the worker is not worth the round trip.
+	 */
+	static final int SYNC_THRESHOLD = 1000;
+
+	/**
+	 * The items, sort and filter of one model.
+	 */
+	static class Source<T> implements Serializable {
+
+		private final Collection<T> items;
+		private final Comparator<T> sort;
+		private final Predicate<T> filter;
+
+		Source(Collection<T> items, Comparator<T> sort, Predicate<T> filter) {
+			this.items = items == null ? Collections.emptyList() : items;
+			this.sort = sort;
+			this.filter = filter;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Source)) {
+				return false;
+			}
+			Source<?> otherSource = (Source<?>) other;
+			return items == otherSource.items
+					&& Objects.equals(sort, otherSource.sort)
+					&& Objects.equals(filter, otherSource.filter);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(items);
+		}
+
+	}
+
+	private final SerializableFunction<T, ?> keyFunction;
+	private final SerializableConsumer<List<T>> sink;
+	// Not serialized with the session, the common pool takes over after a restore
+	private final transient Executor executor;
+	private final VaadinSession session;
+
+	// Only accessed under the session lock
+	private long version = 0;
+	private boolean indexed = false;
+	private Source<T> source;
+	private Map<Object, T> itemsByKey = new HashMap<>();
+	private List<T> view = new ArrayList<>();
+
+	SortedFilteredItems(SerializableFunction<T, ?> keyFunction, SerializableConsumer<List<T>> sink, Executor executor, VaadinSession session) {
+		this.keyFunction = keyFunction == null ? SerializableFunction.identity() : keyFunction;
+		this.sink = sink;
+		this.executor = executor;
+		this.session = session;
+	}
+
+	void update(Source<T> newSource) {
+		version++;
+		Source<T> oldSource = source;
+		source = newSource;
+
+		if (indexed && oldSource != null
+				&& Objects.equals(oldSource.sort, newSource.sort)
+				&& Objects.equals(oldSource.filter, newSource.filter)
+				&& updateIncrementally(newSource.items)) {
+			sink.accept(view);
+			return;
+		}
+
+		if (session == null || newSource.items.size() <= SYNC_THRESHOLD) {
+			Index<T> index = index(newSource);
+			swapIn(index);
+			return;
+		}
+
+		// Heavy lifting on the worker, the view only changes once the new index is ready
+		indexed = false;
+		long indexVersion = version;
+		List<T> items = new ArrayList<>(newSource.items);
+		Source<T> indexSource = new Source<>(items, newSource.sort, newSource.filter);
+		Executor worker = executor == null ? ForkJoinPool.commonPool() : executor;
+		worker.execute(() -> {
+			Index<T> index = index(indexSource);
+			session.access(() -> {
+				if (indexVersion != version) {
+					// A newer version is on its way
+					return;
+				}
+				swapIn(index);
+				for (UI ui : session.getUIs()) {
+					if (ui.getPushConfiguration().getPushMode() == PushMode.MANUAL) {
+						ui.push();
+					}
+				}
+			});
+		});
+	}
+
+	private void swapIn(Index<T> index) {
+		itemsByKey = index.itemsByKey;
+		view = index.view;
+		indexed = true;
+		sink.accept(view);
+	}
+
+	/**
+	 * Apply the difference with the previous items to the sorted view.
+	 *
+	 * @return false when too many rows changed, a full index is cheaper then
+	 */
+	private boolean updateIncrementally(Collection<T> newItems) {
+		Map<Object, T> newItemsByKey = new HashMap<>(newItems.size() * 4 / 3 + 1);
+		List<T> removed = new ArrayList<>();
+		List<T> added = new ArrayList<>();
+		int maxChanges = Math.max(16, newItems.size() / 16);
+
+		for (T newItem : newItems) {
+			Object key = keyFunction.apply(newItem);
+			newItemsByKey.put(key, newItem);
+			T oldItem = itemsByKey.get(key);
+			if (!itemsByKey.containsKey(key)) {
+				added.add(newItem);
+			} else if (!Objects.equals(oldItem, newItem)) {
+				removed.add(oldItem);
+				added.add(newItem);
+			}
+			if (added.size() > maxChanges) {
+				return false;
+			}
+		}
+		for (Map.Entry<Object, T> old : itemsByKey.entrySet()) {
+			if (!newItemsByKey.containsKey(old.getKey())) {
+				removed.add(old.getValue());
+				if (removed.size() > maxChanges) {
+					return false;
+				}
+			}
+		}
+
+		Comparator<T> sort = source.sort;
+		Predicate<T> filter = source.filter;
+		if (sort == null) {
+			view = filterChanged(newItems, added, filter);
+		} else {
+			removed.forEach(item -> remove(item, sort));
+			added.stream()
+					.filter(item -> filter == null || filter.test(item))
+					.forEach(item -> insert(item, sort));
+		}
+		itemsByKey = newItemsByKey;
+		return true;
+	}
+
+	/**
+	 * The view in the order of the new items: the rows which didn't change stay visible when they were.
+	 */
+	private List<T> filterChanged(Collection<T> newItems, List<T> changed, Predicate<T> filter) {
+		Set<Object> visibleKeys = view.stream().map(keyFunction).collect(Collectors.toSet());
+		Set<Object> changedKeys = changed.stream().map(keyFunction).collect(Collectors.toSet());
+		List<T> newView = new ArrayList<>(view.size() + changed.size());
+		for (T item : newItems) {
+			Object key = keyFunction.apply(item);
+			boolean visible = changedKeys.contains(key) ? filter == null || filter.test(item) : visibleKeys.contains(key);
+			if (visible) {
+				newView.add(item);
+			}
+		}
+		return newView;
+	}
+
+	private void remove(T item, Comparator<T> sort) {
+		int position = Collections.binarySearch(view, item, sort);
+		if (position < 0) {
+			// Filtered out
+			return;
+		}
+		Object key = keyFunction.apply(item);
+		// Rows which compare equal are neighbours, look for the one with the key
+		for (int i = position; i >= 0 && sort.compare(view.get(i), item) == 0; i--) {
+			if (Objects.equals(keyFunction.apply(view.get(i)), key)) {
+				view.remove(i);
+				return;
+			}
+		}
+		for (int i = position + 1; i < view.size() && sort.compare(view.get(i), item) == 0; i++) {
+			if (Objects.equals(keyFunction.apply(view.get(i)), key)) {
+				view.remove(i);
+				return;
+			}
+		}
+	}
+
+	private void insert(T item, Comparator<T> sort) {
+		int position = Collections.binarySearch(view, item, sort);
+		view.add(position < 0 ? -position - 1 : position, item);
+	}
+
+	private Index<T> index(Source<T> indexSource) {
+		Map<Object, T> itemsByKey = new HashMap<>(indexSource.items.size() * 4 / 3 + 1);
+		indexSource.items.forEach(item -> itemsByKey.put(keyFunction.apply(item), item));
+		List<T> view = indexSource.items.stream()
+				.filter(item -> indexSource.filter == null || indexSource.filter.test(item))
+				.collect(Collectors.toCollection(ArrayList::new));
+		if (indexSource.sort != null) {
+			view.sort(indexSource.sort);
+		}
+		return new Index<>(itemsByKey, view);
+	}
+
+	private static class Index<T> {
+
+		private final Map<Object, T> itemsByKey;
+		private final List<T> view;
+
+		private Index(Map<Object, T> itemsByKey, List<T> view) {
+			this.itemsByKey = itemsByKey;
+			this.view = view;
+		}
+
+	}
+
+}
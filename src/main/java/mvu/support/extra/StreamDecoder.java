@@ -0,0 +1,72 @@
+package mvu.support.extra;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Decodes a response body while it is coming in, see HttpFetch.
+ * <p>
+ * Every body gets its own Decoding, which is fed the characters chunk by chunk (as the network delivers them) and is
+ * asked for the result at the end. Chunks end anywhere, also in the middle of an item. The result must not be null.
+ */
+@FunctionalInterface
+public interface StreamDecoder<T> {
+
+	/**
+	 * The decoding of one body.
+	 */
+	interface Decoding<T> {
+
+		/**
+		 * The next chunk of the body. The buffer is reused afterwards, don't keep it.
+		 */
+		void feed(CharBuffer chunk);
+
+		/**
+		 * The body is complete.
+		 */
+		T finish();
+
+	}
+
+	Decoding<T> start();
+
+	/**
+	 * A body of items separated by the delimiter, e.g. "Steve Wozniak,Evan Czaplicki". Every item is decoded as soon as
+	 * it is complete, the body is never kept as a whole. Line breaks and empty items are skipped.
+	 */
+	static <ITEM> StreamDecoder<List<ITEM>> delimited(char delimiter, Function<String, ITEM> itemDecoder) {
+		return () -> new Decoding<List<ITEM>>() {
+
+			private final List<ITEM> items = new ArrayList<>();
+			private final StringBuilder item = new StringBuilder(64);
+
+			@Override
+			public void feed(CharBuffer chunk) {
+				while (chunk.hasRemaining()) {
+					char c = chunk.get();
+					if (c == delimiter) {
+						if (item.length() > 0) {
+							items.add(itemDecoder.apply(item.toString()));
+							item.setLength(0);
+						}
+					} else if (c != '\n' && c != '\r') {
+						item.append(c);
+					}
+				}
+			}
+
+			@Override
+			public List<ITEM> finish() {
+				if (item.length() > 0) {
+					items.add(itemDecoder.apply(item.toString()));
+				}
+				return items;
+			}
+
+		};
+	}
+
+}
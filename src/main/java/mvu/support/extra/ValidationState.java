@@ -0,0 +1,59 @@
+package mvu.support.extra;
+
+import java.io.Serializable;
+
+import com.vaadin.data.ValidationResult;
+
+/**
+ * The state of an async validation, reported to the model through an action.
+ */
+public class ValidationState<VALUE> implements Serializable {
+
+	public enum Status {
+		/**
+		 * The check is running (or waiting for the user to stop typing).
+		 */
+		PENDING,
+		VALID,
+		INVALID
+	}
+
+	private final VALUE value;
+	private final Status status;
+	private final String errorMessage;
+
+	private ValidationState(VALUE value, Status status, String errorMessage) {
+		this.value = value;
+		this.status = status;
+		this.errorMessage = errorMessage;
+	}
+
+	static <VALUE> ValidationState<VALUE> pending(VALUE value) {
+		return new ValidationState<>(value, Status.PENDING, null);
+	}
+
+	static <VALUE> ValidationState<VALUE> of(VALUE value, ValidationResult result) {
+		return result.isError()
+				? new ValidationState<>(value, Status.INVALID, result.getErrorMessage())
+				: new ValidationState<>(value, Status.VALID, null);
+	}
+
+	/**
+	 * The validated value.
+	 */
+	public VALUE getValue() {
+		return value;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * The error message when INVALID, null otherwise.
+	 */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+}
@@ -0,0 +1,251 @@
+package mvu.support.extra;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.vaadin.data.ValidationResult;
+import com.vaadin.data.Validator;
+import com.vaadin.data.ValueContext;
+
+/**
+ * Validators for text input which don't allocate on the hot path.
+ * <p>
+ * Validators run on every value change (with ValueChangeMode.EAGER on every keystroke). These never use exceptions for
+ * control flow and return the same ValidationResult instances over and over: the error result of a validator is
+ * created once, with a fixed message.
+ * <p>
+ * Empty input is valid for all validators except #length, combine them with a length(1, ...) for required fields.
+ * Validators are composed into one pipeline per field with #pipeline:
+ *
+ * <pre>
+ * Validator&lt;String&gt; ageValidator = Validators.pipeline(
+ *         Validators.length(1, 3, "Please enter your age"),
+ *         Validators.range(0, 150, "Please enter an age between 0 and 150"));
+ * </pre>
+ */
+public final class Validators {
+
+	private static final ValidationResult OK = ValidationResult.ok();
+
+	private Validators() {
+	}
+
+	public static Validator<String> integer() {
+		return integer("Please enter a whole number");
+	}
+
+	public static Validator<String> integer(String errorMessage) {
+		return new StringValidator(errorMessage) {
+			@Override
+			boolean isValid(String value) {
+				return NumberParsing.isLong(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+			}
+		};
+	}
+
+	public static Validator<String> longNumber() {
+		return longNumber("Please enter a whole number");
+	}
+
+	public static Validator<String> longNumber(String errorMessage) {
+		return new StringValidator(errorMessage) {
+			@Override
+			boolean isValid(String value) {
+				return NumberParsing.isLong(value, Long.MIN_VALUE, Long.MAX_VALUE);
+			}
+		};
+	}
+
+	/**
+	 * A decimal number, e.g. -12.50 or 1e3 (what BigDecimal accepts, without the '.5' and '5.' shorthands).
+	 */
+	public static Validator<String> decimal() {
+		return decimal("Please enter a number");
+	}
+
+	public static Validator<String> decimal(String errorMessage) {
+		return new StringValidator(errorMessage) {
+			@Override
+			boolean isValid(String value) {
+				return NumberParsing.isDecimal(value);
+			}
+		};
+	}
+
+	/**
+	 * A whole number between min and max (inclusive).
+	 */
+	public static Validator<String> range(long min, long max) {
+		return range(min, max, String.format("Please enter a whole number between %d and %d", min, max));
+	}
+
+	public static Validator<String> range(long min, long max, String errorMessage) {
+		return new StringValidator(errorMessage) {
+			@Override
+			boolean isValid(String value) {
+				return NumberParsing.isLong(value, min, max);
+			}
+		};
+	}
+
+	/**
+	 * Between min and max characters (inclusive), also checked for empty input.
+	 */
+	public static Validator<String> length(int min, int max) {
+		return length(min, max, String.format("Please enter between %d and %d characters", min, max));
+	}
+
+	public static Validator<String> length(int min, int max, String errorMessage) {
+		ValidationResult error = ValidationResult.error(errorMessage);
+		return (value, valueContext) -> {
+			int length = value == null ? 0 : value.length();
+			return length >= min && length <= max ? OK : error;
+		};
+	}
+
+	/**
+	 * The whole input matches the regular expression (compiled once, the matcher is reused per thread).
+	 */
+	public static Validator<String> pattern(String regex, String errorMessage) {
+		Pattern pattern = Pattern.compile(regex);
+		ThreadLocal<Matcher> matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+		return new StringValidator(errorMessage) {
+			@Override
+			boolean isValid(String value) {
+				return matchers.get().reset(value).matches();
+			}
+		};
+	}
+
+	/**
+	 * Compose validators into one: they run in order and the first error wins.
+	 */
+	@SafeVarargs
+	public static <T> Validator<T> pipeline(Validator<? super T>... validators) {
+		Validator<? super T>[] steps = validators.clone();
+		return (value, valueContext) -> {
+			for (Validator<? super T> step : steps) {
+				ValidationResult result = step.apply(value, valueContext);
+				if (result.isError()) {
+					return result;
+				}
+			}
+			return OK;
+		};
+	}
+
+	/**
+	 * Empty input is valid, anything else is checked by #isValid.
+	 */
+	private abstract static class StringValidator implements Validator<String> {
+
+		private final ValidationResult error;
+
+		private StringValidator(String errorMessage) {
+			this.error = ValidationResult.error(errorMessage);
+		}
+
+		abstract boolean isValid(String value);
+
+		@Override
+		public ValidationResult apply(String value, ValueContext valueContext) {
+			if (value == null || value.isEmpty()) {
+				return OK;
+			}
+			return isValid(value) ? OK : error;
+		}
+
+	}
+
+	/**
+	 * Number checks without Integer#valueOf and friends, which throw (and allocate a stack trace) on invalid input.
+	 */
+	static final class NumberParsing {
+
+		private NumberParsing() {
+		}
+
+		/**
+		 * An optional sign followed by digits, within min and max.
+		 */
+		static boolean isLong(CharSequence value, long min, long max) {
+			int length = value.length();
+			int i = 0;
+			boolean negative = false;
+			char first = value.charAt(0);
+			if (first == '-' || first == '+') {
+				negative = first == '-';
+				i++;
+				if (length == 1) {
+					return false;
+				}
+			}
+			// Accumulate negatively (like Long#parseLong) so Long.MIN_VALUE fits
+			long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+			long multiplicationLimit = limit / 10;
+			long result = 0;
+			for (; i < length; i++) {
+				int digit = value.charAt(i) - '0';
+				if (digit < 0 || digit > 9) {
+					return false;
+				}
+				if (result < multiplicationLimit) {
+					return false;
+				}
+				result *= 10;
+				if (result < limit + digit) {
+					return false;
+				}
+				result -= digit;
+			}
+			long number = negative ? result : -result;
+			return number >= min && number <= max;
+		}
+
+		/**
+		 * [+-]digits[.digits][(e|E)[+-]digits]
+		 */
+		static boolean isDecimal(CharSequence value) {
+			int length = value.length();
+			int i = 0;
+			if (value.charAt(0) == '-' || value.charAt(0) == '+') {
+				i++;
+			}
+			int integerDigits = digits(value, i);
+			if (integerDigits == 0) {
+				return false;
+			}
+			i += integerDigits;
+			if (i < length && value.charAt(i) == '.') {
+				i++;
+				int fractionDigits = digits(value, i);
+				if (fractionDigits == 0) {
+					return false;
+				}
+				i += fractionDigits;
+			}
+			if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+				i++;
+				if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+					i++;
+				}
+				int exponentDigits = digits(value, i);
+				if (exponentDigits == 0) {
+					return false;
+				}
+				i += exponentDigits;
+			}
+			return i == length;
+		}
+
+		private static int digits(CharSequence value, int from) {
+			int i = from;
+			while (i < value.length() && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+				i++;
+			}
+			return i - from;
+		}
+
+	}
+
+}
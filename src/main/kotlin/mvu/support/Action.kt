@@ -22,12 +22,33 @@ interface BroadcastAction : Action
  */
 interface AsyncAction<STARTACTION, LEFTACTION, RIGHTACTION> : Action {
 
+    /**
+     * Runs before perform() is started, e.g. to show 'Loading...'. May be null when there is nothing to show.
+     */
     val startAction: STARTACTION
 
     fun <LEFTACTION, RIGHTACTION> perform(): AsyncActionResult<LEFTACTION, RIGHTACTION>
 
 }
 
+/**
+ * An AsyncAction of which only the latest one matters, e.g. a search-as-you-type or the validation of a field.
+ * <p>
+ * Starting it cancels the AsyncAction with an equal supersedeKey which is still running for the same component:
+ * the result of the superseded one is dropped.
+ */
+interface SupersedingAsyncAction<STARTACTION, LEFTACTION, RIGHTACTION> : AsyncAction<STARTACTION, LEFTACTION, RIGHTACTION> {
+
+    val supersedeKey: Any
+
+}
+
+/**
+ * Cancels the running SupersedingAsyncAction with an equal supersedeKey of the component, without starting a new one
+ * (e.g. because the result is already known). Handled by the engine itself, it never reaches the update function.
+ */
+class CancelSuperseded(val supersedeKey: Any) : Action
+
 /**
  *
  * @param <LEFT> Typically the onFail action
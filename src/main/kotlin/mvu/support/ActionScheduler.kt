@@ -0,0 +1,246 @@
+package mvu.support
+
+import com.vaadin.server.VaadinSession
+import com.vaadin.shared.communication.PushMode
+import com.vaadin.ui.UI
+import java.lang.ref.WeakReference
+import java.util.LinkedHashSet
+import java.util.WeakHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.LongAdder
+import java.util.concurrent.locks.ReentrantLock
+import java.util.logging.Level
+import java.util.logging.Logger
+
+/**
+ * Priority lane of an action which is delivered from outside of the UI thread.
+ */
+enum class Lane {
+    /**
+     * Actions the user is actively waiting for. Always processed first.
+     */
+    USER,
+
+    /**
+     * Background results (async results, subscriptions, timers, ...). Processed in batches and deferred while user
+     * requests are waiting for the session.
+     */
+    BACKGROUND
+}
+
+/**
+ * Marker interface for actions which should be delivered in the USER lane, even when they are produced in the
+ * background (e.g. the result of a backend call the user explicitly asked for).
+ */
+interface HighPriorityAction : Action
+
+internal fun laneOf(action: Action): Lane = if (action is HighPriorityAction) Lane.USER else Lane.BACKGROUND
+
+/**
+ * Latency metrics (application wide), e.g. the queue-wait of one lane: the time between the delivery of an action and
+ * its update.
+ */
+class LatencyMetrics internal constructor() {
+
+    private val deliveries = LongAdder()
+    private val totalWaitNanos = LongAdder()
+    private val maxWaitNanos = AtomicLong()
+
+    val count: Long
+        get() = deliveries.sum()
+
+    val averageWaitMillis: Double
+        get() {
+            val count = deliveries.sum()
+            return if (count == 0L) 0.0 else totalWaitNanos.sum().toDouble() / count / TimeUnit.MILLISECONDS.toNanos(1)
+        }
+
+    val maxWaitMillis: Double
+        get() = maxWaitNanos.get().toDouble() / TimeUnit.MILLISECONDS.toNanos(1)
+
+    fun reset() {
+        deliveries.reset()
+        totalWaitNanos.reset()
+        maxWaitNanos.set(0)
+    }
+
+    internal fun record(waitNanos: Long) {
+        deliveries.increment()
+        totalWaitNanos.add(waitNanos)
+        maxWaitNanos.accumulateAndGet(waitNanos) { max, wait -> Math.max(max, wait) }
+    }
+
+    override fun toString(): String {
+        return String.format("count=%d avgWait=%.2fms maxWait=%.2fms", count, averageWaitMillis, maxWaitMillis)
+    }
+
+}
+
+/**
+ * Queue-wait metrics per lane.
+ *
+ * <pre>
+ * LOG.info("user lane: " + ActionMetrics.lane(Lane.USER));
+ * </pre>
+ */
+object ActionMetrics {
+
+    private val lanes = Lane.values().associate { it to LatencyMetrics() }
+
+    @JvmStatic
+    fun lane(lane: Lane): LatencyMetrics = lanes.getValue(lane)
+
+}
+
+/**
+ * Marks the current thread as processing a batch of actions which is pushed once at the end, so the individual
+ * updates should not push.
+ */
+internal object PushBatch {
+
+    private val active = ThreadLocal.withInitial { false }
+
+    fun isActive(): Boolean = active.get()
+
+    fun run(block: () -> Unit) {
+        val outer = active.get()
+        active.set(true)
+        try {
+            block()
+        } finally {
+            active.set(outer)
+        }
+    }
+
+}
+
+internal class Delivery(
+        val context: ComponentContext<*>,
+        val action: Action,
+        val lane: Lane,
+        val onProcessed: Runnable?) {
+
+    val enqueuedNanos = System.nanoTime()
+
+}
+
+/**
+ * Processes the actions delivered from outside of the UI thread for one session.
+ * <p>
+ * Instead of one session access (lock, update, push) per action, the deliveries are drained in one access: first the
+ * whole USER lane, then a batch of the BACKGROUND lane. While other threads (typically user requests) are waiting for
+ * the session lock, the BACKGROUND lane backs off and continues in a new access afterwards.
+ * Every UI with changes is pushed once per drain. An update which fails is logged and doesn't stop the drain.
+ * <p>
+ * The deliveries themselves wait in the Mailbox of their component, the lanes only hold the mailboxes with waiting
+ * deliveries. One delivery is taken at a time and the mailbox goes to the back of the lane, so a busy component
+ * can't hold up the others.
+ * <p>
+ * The scheduler is not part of the session state (which may be serialized): it only holds a weak reference to its
+ * session and is recreated when needed, whatever was waiting in it belonged to the components of the old session.
+ */
+internal class ActionScheduler private constructor(session: VaadinSession) {
+
+    private val sessionRef = WeakReference(session)
+
+    private val userLane = ConcurrentLinkedQueue<Mailbox>()
+    private val backgroundLane = ConcurrentLinkedQueue<Mailbox>()
+    private val drainScheduled = AtomicBoolean(false)
+
+    /**
+     * The mailbox has deliveries waiting in the lane (see Mailbox#offer).
+     */
+    fun schedule(mailbox: Mailbox, lane: Lane) {
+        when (lane) {
+            Lane.USER -> userLane.add(mailbox)
+            Lane.BACKGROUND -> backgroundLane.add(mailbox)
+        }
+        if (drainScheduled.compareAndSet(false, true)) {
+            val session = sessionRef.get() ?: return
+            session.access { drain(session) }
+        }
+    }
+
+    private fun drain(session: VaadinSession) {
+        drainScheduled.set(false)
+        try {
+            PushBatch.run { drainLanes(session) }
+        } finally {
+            // The mailboxes left in the lanes are not scheduled again by their components
+            if ((userLane.isNotEmpty() || backgroundLane.isNotEmpty()) && drainScheduled.compareAndSet(false, true)) {
+                // Continue from another thread: an access from this thread would run before the waiting requests
+                ForkJoinPool.commonPool().execute { session.access { drain(session) } }
+            }
+        }
+    }
+
+    private fun drainLanes(session: VaadinSession) {
+        val touchedUIs = LinkedHashSet<UI>()
+
+        drainUserLane(touchedUIs)
+        var processed = 0
+        while (processed < BACKGROUND_BATCH_SIZE) {
+            if (processed > 0 && requestsWaiting(session)) {
+                break
+            }
+            val mailbox = backgroundLane.poll() ?: break
+            val delivery = mailbox.take(Lane.BACKGROUND) { backgroundLane.add(mailbox) } ?: continue
+            process(delivery, touchedUIs)
+            processed++
+            // User actions which arrived in the meantime go first
+            drainUserLane(touchedUIs)
+        }
+
+        touchedUIs
+                .filter { it.pushConfiguration.pushMode == PushMode.MANUAL }
+                .forEach { it.push() }
+    }
+
+    private fun drainUserLane(touchedUIs: MutableSet<UI>) {
+        while (true) {
+            val mailbox = userLane.poll() ?: return
+            val delivery = mailbox.take(Lane.USER) { userLane.add(mailbox) } ?: continue
+            process(delivery, touchedUIs)
+        }
+    }
+
+    private fun process(delivery: Delivery, touchedUIs: MutableSet<UI>) {
+        ActionMetrics.lane(delivery.lane).record(System.nanoTime() - delivery.enqueuedNanos)
+        try {
+            if (delivery.context.process(delivery.action, delivery.onProcessed)) {
+                touchedUIs.addAll(delivery.context.uis())
+            }
+        } catch (e: Exception) {
+            logger.log(Level.SEVERE, "Processing ${delivery.action.javaClass.name} failed", e)
+        }
+    }
+
+    private fun requestsWaiting(session: VaadinSession): Boolean {
+        val lock = session.lockInstance
+        return lock is ReentrantLock && lock.hasQueuedThreads()
+    }
+
+    companion object {
+
+        private const val BACKGROUND_BATCH_SIZE = 64
+
+        private val logger = Logger.getLogger(ActionScheduler::class.java.name)
+
+        private val schedulers: MutableMap<VaadinSession, ActionScheduler> = WeakHashMap()
+
+        /**
+         * The scheduler of the session.
+         */
+        fun of(session: VaadinSession): ActionScheduler {
+            synchronized(schedulers) {
+                return schedulers.getOrPut(session) { ActionScheduler(session) }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,163 @@
+package mvu.support
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.asCoroutineDispatcher
+import java.lang.reflect.Method
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * How AsyncAction#perform is executed.
+ */
+enum class AsyncExecutionMode {
+    /**
+     * Run on the default coroutine pool (sized to the number of CPU cores).
+     * <p>
+     * Fine for short, CPU bound work. Blocking I/O pins one of the few pool threads for the whole call.
+     */
+    COROUTINES,
+
+    /**
+     * Run each perform() on its own virtual thread when the JVM supports it (Java 21+).
+     * <p>
+     * On older JVMs this falls back to a bounded pool of platform threads, see AsyncExecution#fallbackPoolSize.
+     * Use this mode when most AsyncActions are blocking backend calls.
+     */
+    VIRTUAL_THREADS
+}
+
+/**
+ * Application wide configuration of the async engine.
+ *
+ * <pre>
+ * AsyncExecution.setMode(AsyncExecutionMode.VIRTUAL_THREADS);
+ * </pre>
+ */
+object AsyncExecution {
+
+    /**
+     * The execution mode for all AsyncActions. Defaults to COROUTINES.
+     */
+    @JvmStatic
+    @Volatile
+    var mode: AsyncExecutionMode = AsyncExecutionMode.COROUTINES
+
+    /**
+     * Maximum number of platform threads used by VIRTUAL_THREADS when virtual threads are not available.
+     * <p>
+     * Only read when the blocking dispatcher is created (the first time an AsyncAction runs in VIRTUAL_THREADS mode).
+     */
+    @JvmStatic
+    @Volatile
+    var fallbackPoolSize: Int = 64
+
+    /**
+     * True when this JVM can create virtual threads.
+     */
+    @JvmStatic
+    val isVirtualThreadsSupported: Boolean
+        get() = virtualThreadExecutorFactory != null
+
+    /**
+     * Executors#newVirtualThreadPerTaskExecutor is only available as of Java 21, hence the reflection.
+     */
+    private val virtualThreadExecutorFactory: Method? by lazy {
+        try {
+            Executors::class.java.getMethod("newVirtualThreadPerTaskExecutor")
+        } catch (e: NoSuchMethodException) {
+            null
+        }
+    }
+
+    private val blockingDispatcher: CoroutineDispatcher by lazy {
+        val executor = virtualThreadExecutorFactory?.invoke(null) as ExecutorService? ?: newBoundedPlatformPool(fallbackPoolSize)
+        executor.asCoroutineDispatcher()
+    }
+
+    /**
+     * The coroutine dispatcher on which AsyncAction#perform runs for the current mode.
+     */
+    @JvmStatic
+    val dispatcher: CoroutineDispatcher
+        get() = when (mode) {
+            AsyncExecutionMode.COROUTINES -> Dispatchers.Default
+            AsyncExecutionMode.VIRTUAL_THREADS -> blockingDispatcher
+        }
+
+    private fun newBoundedPlatformPool(poolSize: Int): ExecutorService {
+        val threadCounter = AtomicInteger(1)
+        val threadFactory = ThreadFactory { runnable ->
+            val thread = Thread(runnable, "mvu-async-${threadCounter.getAndIncrement()}")
+            thread.isDaemon = true
+            thread
+        }
+        val pool = ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, LinkedBlockingQueue<Runnable>(), threadFactory)
+        pool.allowCoreThreadTimeOut(true)
+        return pool
+    }
+
+}
+
+/**
+ * The threads blocked in AsyncAction#perform per job, so cancelling the job also interrupts the blocking work (a
+ * Thread.sleep, a blocking queue, an interruptible channel) instead of letting it run on for nobody.
+ */
+internal object BlockingWork {
+
+    private val running = ConcurrentHashMap<Job, RunningThread>()
+
+    fun <T> run(job: Job, block: () -> T): T {
+        val runningThread = RunningThread(Thread.currentThread())
+        running[job] = runningThread
+        try {
+            if (job.isCancelled) {
+                throw CancellationException("Cancelled before it started")
+            }
+            return block()
+        } catch (e: InterruptedException) {
+            if (job.isCancelled) {
+                throw CancellationException("Cancelled while running")
+            }
+            throw e
+        } finally {
+            running.remove(job)
+            runningThread.done()
+        }
+    }
+
+    /**
+     * Cancel the job and interrupt its blocking work, if any.
+     */
+    fun cancel(job: Job) {
+        job.cancel()
+        running[job]?.interrupt()
+    }
+
+    /**
+     * The interrupt can't reach the thread anymore once it is done, so it never leaks into the next task of a pool.
+     */
+    private class RunningThread(private var thread: Thread?) {
+
+        @Synchronized
+        fun interrupt() {
+            thread?.interrupt()
+        }
+
+        @Synchronized
+        fun done() {
+            thread = null
+            Thread.interrupted()
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package mvu.support
+
+import com.vaadin.shared.Registration
+import com.vaadin.ui.UI
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Application wide broadcast of actions to every subscribed component, in every session (e.g. "configuration
+ * changed", "new record").
+ * <p>
+ * Where a BroadcastAction only travels up one chain of dispatchers, the bus reaches all components which joined it
+ * with #subscription:
+ *
+ * <pre>
+ * bindModelAndView(parentDispatcher, initialModel, Persons::view, Persons::update,
+ *         Collections.singletonList(BroadcastBus.getApplication().subscription(PersonAdded.class)));
+ *
+ * BroadcastBus.getApplication().publish(new PersonAdded(person));
+ * </pre>
+ *
+ * Publishing never blocks: a small pool of workers hands the published actions to the mailboxes of the subscribed
+ * components, like any other action delivered from outside of the UI thread. So the overflow policy of the mailbox
+ * applies and the ActionScheduler of each session processes them, locking and pushing once per drain.
+ *
+ * @param workers Maximum number of threads delivering actions (and thus waiting for full BLOCK mailboxes) at the same
+ *                time
+ */
+class BroadcastBus @JvmOverloads constructor(workers: Int = Runtime.getRuntime().availableProcessors()) {
+
+    private val mailboxes = ConcurrentHashMap<UI, UiMailbox>()
+    private val executor = newWorkerPool(workers)
+
+    /**
+     * Time between publishing an action and its update in a component, one measurement per subscribed component.
+     */
+    val fanOutLatency = LatencyMetrics()
+
+    /**
+     * Deliver the action to all subscribed components (asynchronously).
+     */
+    fun publish(action: Action) {
+        val published = Published(action)
+        mailboxes.values.forEach { mailbox ->
+            mailbox.pending.add(published)
+            if (mailbox.scheduled.compareAndSet(false, true)) {
+                executor.execute { flush(mailbox) }
+            }
+        }
+    }
+
+    /**
+     * Join the bus while the component is attached.
+     *
+     * @param actionTypes Only receive these actions (and their subtypes), all actions when empty
+     */
+    fun subscription(vararg actionTypes: Class<out Action>): Sub {
+        val types = actionTypes.toList()
+        return object : Sub {
+            override fun start(inbox: Inbox): Registration = join(Member(inbox, types))
+        }
+    }
+
+    private fun join(member: Member): Registration {
+        val ui = member.inbox.context?.ui ?: return Registration { }
+        // Atomic with the removal of the last member, which drops the mailbox of the UI
+        mailboxes.compute(ui) { _, mailbox -> (mailbox ?: UiMailbox(ui)).also { it.members.add(member) } }
+        return Registration {
+            mailboxes.computeIfPresent(ui) { _, mailbox ->
+                mailbox.members.remove(member)
+                if (mailbox.members.isEmpty()) null else mailbox
+            }
+        }
+    }
+
+    /**
+     * Only one worker flushes a mailbox at a time, so its components get the actions in the order they were published.
+     */
+    private fun flush(mailbox: UiMailbox) {
+        do {
+            try {
+                deliverPending(mailbox)
+            } finally {
+                mailbox.scheduled.set(false)
+            }
+            // An action published after the last poll, but before the flag was cleared, didn't start a new flush
+        } while (mailbox.pending.isNotEmpty() && mailbox.scheduled.compareAndSet(false, true))
+    }
+
+    private fun deliverPending(mailbox: UiMailbox) {
+        while (true) {
+            val published = mailbox.pending.poll() ?: return
+            val lane = laneOf(published.action)
+            mailbox.members
+                    .filter { it.accepts(published.action) }
+                    .forEach { member ->
+                        member.inbox.context?.deliver(published.action, lane, Runnable {
+                            fanOutLatency.record(System.nanoTime() - published.publishedNanos)
+                        })
+                    }
+        }
+    }
+
+    companion object {
+
+        /**
+         * The bus for the whole application.
+         */
+        @JvmStatic
+        val application: BroadcastBus by lazy { BroadcastBus() }
+
+        private val poolCounter = AtomicInteger(1)
+
+        private fun newWorkerPool(poolSize: Int): ExecutorService {
+            val poolNumber = poolCounter.getAndIncrement()
+            val threadCounter = AtomicInteger(1)
+            val threadFactory = ThreadFactory { runnable ->
+                val thread = Thread(runnable, "mvu-broadcast-$poolNumber-${threadCounter.getAndIncrement()}")
+                thread.isDaemon = true
+                thread
+            }
+            val pool = ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, LinkedBlockingQueue<Runnable>(), threadFactory)
+            pool.allowCoreThreadTimeOut(true)
+            return pool
+        }
+
+    }
+
+    private class Published(val action: Action) {
+        val publishedNanos = System.nanoTime()
+    }
+
+    private class Member(val inbox: Inbox, private val actionTypes: List<Class<out Action>>) {
+
+        fun accepts(action: Action): Boolean {
+            return actionTypes.isEmpty() || actionTypes.any { it.isInstance(action) }
+        }
+
+    }
+
+    /**
+     * The subscribed components of one UI and the actions waiting for the next batch.
+     */
+    private class UiMailbox(val ui: UI) {
+        val members = CopyOnWriteArrayList<Member>()
+        val pending = ConcurrentLinkedQueue<Published>()
+        val scheduled = AtomicBoolean(false)
+    }
+
+}
@@ -0,0 +1,86 @@
+package mvu.support
+
+import java.util.Collections
+import java.util.LinkedHashSet
+
+/**
+ * Side effects returned by an update together with the new model, the equivalent of Elm's Cmd.
+ * <p>
+ * A Cmd is a set of AsyncActions. After the update the engine performs all of them in parallel and dispatches their
+ * Left or Right result back to the component. Contrary to dispatching an AsyncAction, the startAction is not
+ * dispatched: the update which returns the Cmd already is the start.
+ * <p>
+ * Cmds collected during one update cycle (e.g. an async action with its start action) are merged and identical
+ * AsyncActions (equals) only run once. An AsyncAction which is still running for the component is not started again.
+ *
+ * <pre>
+ * return ModelAndCmd.of(
+ *         Model.copy(oldModel.builder.withStatus("Loading...")),
+ *         Cmd.of(new LoadHeros(url), new LoadVillains(url))
+ * );
+ * </pre>
+ */
+class Cmd private constructor(internal val asyncActions: Set<AsyncAction<*, *, *>>) {
+
+    val isNone: Boolean
+        get() = asyncActions.isEmpty()
+
+    companion object {
+
+        private val NONE = Cmd(Collections.emptySet())
+
+        /**
+         * No side effects.
+         */
+        @JvmStatic
+        fun none(): Cmd = NONE
+
+        /**
+         * Perform the async actions (in parallel).
+         */
+        @JvmStatic
+        fun of(vararg asyncActions: AsyncAction<*, *, *>): Cmd {
+            return if (asyncActions.isEmpty()) NONE else Cmd(LinkedHashSet(asyncActions.asList()))
+        }
+
+        /**
+         * Merge several Cmds into one, identical async actions only run once.
+         */
+        @JvmStatic
+        fun batch(vararg cmds: Cmd): Cmd {
+            return batch(cmds.asList())
+        }
+
+        /**
+         * Merge several Cmds into one, identical async actions only run once.
+         */
+        @JvmStatic
+        fun batch(cmds: Collection<Cmd>): Cmd {
+            val asyncActions = LinkedHashSet<AsyncAction<*, *, *>>()
+            cmds.forEach { asyncActions.addAll(it.asyncActions) }
+            return if (asyncActions.isEmpty()) NONE else Cmd(asyncActions)
+        }
+
+    }
+
+}
+
+/**
+ * The result of an UpdateWithEffects: the new model and the side effects to perform (Elm's (Model, Cmd Msg)).
+ */
+class ModelAndCmd<MODEL>(val model: MODEL, val cmd: Cmd) {
+
+    companion object {
+
+        /**
+         * Only a new model, no side effects.
+         */
+        @JvmStatic
+        fun <MODEL> of(model: MODEL): ModelAndCmd<MODEL> = ModelAndCmd(model, Cmd.none())
+
+        @JvmStatic
+        fun <MODEL> of(model: MODEL, cmd: Cmd): ModelAndCmd<MODEL> = ModelAndCmd(model, cmd)
+
+    }
+
+}
@@ -0,0 +1,143 @@
+package mvu.support
+
+import com.vaadin.server.SerializableConsumer
+import com.vaadin.server.VaadinSession
+import com.vaadin.shared.Registration
+import com.vaadin.shared.communication.PushMode
+import java.io.Serializable
+import java.util.concurrent.TimeUnit
+
+/**
+ * How a Coalescer turns a burst of values into one.
+ */
+enum class CoalesceMode {
+    /**
+     * Wait until the burst is over (no new value during the window) and then pass on the latest value.
+     */
+    DEBOUNCE,
+
+    /**
+     * Pass on the first value immediately and then at most one value (the latest) per window.
+     */
+    THROTTLE
+}
+
+/**
+ * Coalesces bursts of values into a single call of the sink with the latest value.
+ * <p>
+ * Typical usages are dispatching one action per burst of keystrokes (see BoundTextField#withDebounce) or rendering
+ * a fast changing model value at most x times per second (see BoundLabel#withMaxRefreshRate).
+ * <p>
+ * Must be used under the session lock (e.g. from a value change listener or a binding). The delayed calls run on the
+ * shared timer and then hop onto the session again.
+ *
+ * @param <VALUE> Type of the coalesced values (e.g. Action)
+ */
+class Coalescer<VALUE>(private val mode: CoalesceMode, private val window: Long, private val unit: TimeUnit) : Serializable {
+
+    private var hasPending = false
+    private var pending: VALUE? = null
+    private var pendingSink: SerializableConsumer<VALUE>? = null
+
+    @Transient
+    private var timeout: Registration? = null
+    private var generation = 0
+
+    /**
+     * Offer a value, the sink might be called now, later or not at all (when a newer value replaces it).
+     */
+    fun offer(value: VALUE, sink: SerializableConsumer<VALUE>) {
+        hasPending = true
+        pending = value
+        pendingSink = sink
+        when (mode) {
+            CoalesceMode.DEBOUNCE -> {
+                timeout?.remove()
+                timeout = schedule()
+            }
+            CoalesceMode.THROTTLE ->
+                if (timeout == null) {
+                    flush()
+                    timeout = schedule()
+                }
+        }
+    }
+
+    /**
+     * Pass on the pending value (if any) right away, e.g. when the field loses focus.
+     */
+    fun flush() {
+        if (!hasPending) {
+            return
+        }
+        @Suppress("UNCHECKED_CAST")
+        val value = pending as VALUE
+        val sink = pendingSink
+        hasPending = false
+        pending = null
+        pendingSink = null
+        sink?.accept(value)
+    }
+
+    companion object {
+
+        /**
+         * The highest rate of #rateLimited: the shared timer ticks every 100 milliseconds, so a shorter window would
+         * fire late anyway.
+         */
+        const val MAX_RATE_PER_SECOND = 10
+
+        /**
+         * Wrap a render function so it is called at most maxPerSecond times per second. The latest value always wins
+         * and is rendered at the end of the window (trailing flush), so the final state is correct.
+         *
+         * @param render       Renders a value (e.g. sets the value of a label)
+         * @param maxPerSecond Maximum number of renders per second, 0 or less means no limit, more than
+         *                     MAX_RATE_PER_SECOND is clamped to it
+         */
+        @JvmStatic
+        fun <VALUE> rateLimited(render: SerializableConsumer<VALUE>, maxPerSecond: Int): SerializableConsumer<VALUE> {
+            if (maxPerSecond <= 0) {
+                return render
+            }
+            val window = 1000L / Math.min(maxPerSecond, MAX_RATE_PER_SECOND)
+            val throttle = Coalescer<VALUE>(CoalesceMode.THROTTLE, window, TimeUnit.MILLISECONDS)
+            return SerializableConsumer { value -> throttle.offer(value, render) }
+        }
+
+    }
+
+    private fun schedule(): Registration {
+        val session = VaadinSession.getCurrent()
+        // A replaced timeout might already be on its way, the generation tells it to back off
+        val scheduledGeneration = ++generation
+        return HashedWheelTimer.shared.schedule(window, 0, unit, Runnable {
+            if (session != null) {
+                session.access {
+                    windowClosed(scheduledGeneration)
+                    // Automatic push happens when the session is unlocked, manual push is up to us
+                    session.uIs
+                            .filter { it.pushConfiguration.pushMode == PushMode.MANUAL }
+                            .forEach { it.push() }
+                }
+            } else {
+                windowClosed(scheduledGeneration)
+            }
+        })
+    }
+
+    private fun windowClosed(closedGeneration: Int) {
+        if (closedGeneration != generation) {
+            return
+        }
+        timeout = null
+        if (hasPending) {
+            flush()
+            if (mode == CoalesceMode.THROTTLE) {
+                // Keep throttling while the burst goes on
+                timeout = schedule()
+            }
+        }
+    }
+
+}
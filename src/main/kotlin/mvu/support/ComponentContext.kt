@@ -0,0 +1,326 @@
+package mvu.support
+
+import com.vaadin.data.Binder
+import com.vaadin.server.VaadinSession
+import com.vaadin.shared.Registration
+import com.vaadin.ui.Component
+import com.vaadin.ui.UI
+import kotlinx.coroutines.Job
+import java.lang.ref.WeakReference
+import java.util.Collections
+import java.util.LinkedHashSet
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Runtime state of one bound component (one call to bindModelAndView).
+ * <p>
+ * The context follows the attach / detach lifecycle of the component returned by the view:
+ *
+ * <ul>
+ *   <li>NEW: the component is created but not yet added to a UI. Actions are processed as usual.</li>
+ *   <li>ATTACHED: the component is part of a UI. Actions are processed and pushed to that UI only, subscriptions are running.</li>
+ *   <li>DETACHED: the component was removed from the UI (and not added again in the same ComponentMoves#move). Actions are dropped, subscriptions and pending async work are cancelled.</li>
+ * </ul>
+ *
+ * Async work only holds a weak reference to the context (see #weakReference) so a detached component, its binder
+ * and its model can be garbage collected even while a (blocking) AsyncAction#perform is still running.
+ */
+internal class ComponentContext<MODEL>(
+        val vaadinSession: VaadinSession,
+        val binder: Binder<MODEL>,
+        val update: UpdateWithEffects<MODEL>,
+        val parentDispatcher: Dispatcher) {
+
+    private enum class State { NEW, ATTACHED, DETACHED }
+
+    @Volatile
+    private var state = State.NEW
+
+    private var component: Component? = null
+    private var dispatcher: Dispatcher? = null
+
+    private var subscriptions: List<Sub> = emptyList()
+    private var activeSubscriptions: List<Registration> = emptyList()
+
+    @Volatile
+    private var scheduler: ActionScheduler? = null
+
+    // Created on the first delivery, per type of model (see Mailboxes). Closed on detach, a new one is created when
+    // the component is attached again
+    @Volatile
+    private var currentMailbox: Mailbox? = null
+
+    private val pendingJobs: MutableSet<Job> = Collections.newSetFromMap(ConcurrentHashMap<Job, Boolean>())
+    // The running job per supersedeKey (see SupersedingAsyncAction)
+    private val supersedableJobs = ConcurrentHashMap<Any, Job>()
+
+    // Cmds collected during the current update cycle (under the session lock)
+    private var batchDepth = 0
+    private val collectedCmds = LinkedHashSet<AsyncAction<*, *, *>>()
+    // Cmds which are being performed
+    private val runningCmds: MutableSet<AsyncAction<*, *, *>> = Collections.newSetFromMap(ConcurrentHashMap<AsyncAction<*, *, *>, Boolean>())
+
+    val isDetached: Boolean
+        get() = state == State.DETACHED
+
+    /**
+     * Follow the lifecycle of the (root) component rendered by the view.
+     */
+    fun bindTo(component: Component, dispatcher: Dispatcher, subscriptions: List<Sub>) {
+        this.component = component
+        this.dispatcher = dispatcher
+        this.subscriptions = subscriptions
+        component.addAttachListener { attach() }
+        component.addDetachListener { detach() }
+        if (component.isAttached) {
+            attach()
+        }
+    }
+
+    /**
+     * The UIs which should be updated after a model change.
+     * <p>
+     * Once attached this is only the UI of the component, before that we don't know yet so it's every UI in the session.
+     */
+    fun uis(): Collection<UI> {
+        val ui = component?.ui
+        return if (ui != null) listOf(ui) else vaadinSession.uIs
+    }
+
+    /**
+     * The UI of the component, null as long as it is not attached.
+     */
+    val ui: UI?
+        get() = component?.ui
+
+    fun weakReference(): WeakReference<ComponentContext<MODEL>> = WeakReference(this)
+
+    /**
+     * Keep track of a running async job so it can be cancelled when the component is detached.
+     */
+    fun track(job: Job) {
+        if (isDetached) {
+            BlockingWork.cancel(job)
+            return
+        }
+        pendingJobs.add(job)
+        val pendingJobsRef = WeakReference(pendingJobs)
+        job.invokeOnCompletion { pendingJobsRef.get()?.remove(job) }
+    }
+
+    /**
+     * The job replaces (and cancels) the running job with the same key.
+     */
+    fun supersede(key: Any, job: Job) {
+        supersedableJobs.put(key, job)?.let { BlockingWork.cancel(it) }
+        val supersedableJobsRef = WeakReference(supersedableJobs)
+        job.invokeOnCompletion { supersedableJobsRef.get()?.remove(key, job) }
+    }
+
+    /**
+     * Cancel the running job with the key, if any.
+     */
+    fun cancelSuperseded(key: Any) {
+        supersedableJobs.remove(key)?.let { BlockingWork.cancel(it) }
+    }
+
+    /**
+     * Run the block as one update cycle: the Cmds collected meanwhile are only released when the outermost batch ends.
+     */
+    fun batch(block: () -> Unit) {
+        batchDepth++
+        try {
+            block()
+        } finally {
+            batchDepth--
+        }
+    }
+
+    fun collect(cmd: Cmd) {
+        collectedCmds.addAll(cmd.asyncActions)
+    }
+
+    /**
+     * There are collected Cmds and the update cycle is over, see #releaseCmds.
+     */
+    val hasCmdsToRelease: Boolean
+        get() = batchDepth == 0 && collectedCmds.isNotEmpty()
+
+    /**
+     * The collected Cmds which should be performed now: nothing while a batch is still going on and no Cmds which
+     * are still running from a previous cycle. The released Cmds are marked as running (see #cmdDone).
+     */
+    fun releaseCmds(): List<AsyncAction<*, *, *>> {
+        if (!hasCmdsToRelease) {
+            return emptyList()
+        }
+        val released = collectedCmds.filter { runningCmds.add(it) }
+        collectedCmds.clear()
+        return released
+    }
+
+    /**
+     * Forget the collected Cmds without performing them.
+     */
+    fun discardCmds() {
+        collectedCmds.clear()
+    }
+
+    fun cmdDone(asyncAction: AsyncAction<*, *, *>) {
+        runningCmds.remove(asyncAction)
+    }
+
+    /**
+     * Run an action produced outside of the UI thread (e.g. by a subscription) through this component's dispatcher.
+     * <p>
+     * The action waits in the mailbox of the component until the session's ActionScheduler processes it under the
+     * session lock, afterwards onProcessed is invoked (still under the lock). When the mailbox is full, its
+     * OverflowPolicy applies. Actions for detached components are dropped.
+     * <p>
+     * onProcessed is invoked exactly once, under the session lock, also for an action which is dropped (by the overflow
+     * policy, because the component is detached, ...) or of which the update failed. Guards and backpressure which wait
+     * for it are always released.
+     */
+    fun deliver(action: Action, lane: Lane, onProcessed: Runnable?) {
+        if (isDetached) {
+            onProcessed?.let { dropped(it) }
+            return
+        }
+        val mailbox = mailbox()
+        val offer = mailbox.offer(Delivery(this, action, lane, onProcessed), !vaadinSession.hasLock())
+        offer.dropped?.onProcessed?.let { dropped(it) }
+        if (!offer.schedule) {
+            return
+        }
+        val currentScheduler = scheduler ?: ActionScheduler.of(vaadinSession).also { scheduler = it }
+        currentScheduler.schedule(mailbox, lane)
+    }
+
+    /**
+     * Process a delivered action, under the session lock.
+     *
+     * @return false when the action was dropped because the component is detached
+     */
+    fun process(action: Action, onProcessed: Runnable?): Boolean {
+        if (isDetached) {
+            onProcessed?.run()
+            return false
+        }
+        try {
+            dispatcher?.dispatcher?.invoke(action)
+        } finally {
+            onProcessed?.run()
+        }
+        return true
+    }
+
+    /**
+     * The action of onProcessed will never be processed, let the producer know (under the session lock).
+     */
+    private fun dropped(onProcessed: Runnable) {
+        if (vaadinSession.hasLock()) {
+            onProcessed.run()
+        } else {
+            vaadinSession.access { onProcessed.run() }
+        }
+    }
+
+    private fun mailbox(): Mailbox {
+        currentMailbox?.let { return it }
+        synchronized(this) {
+            return currentMailbox ?: Mailboxes.newMailbox((binder.bean as Any?)?.javaClass ?: Any::class.java)
+                    .also { currentMailbox = it }
+        }
+    }
+
+    private fun attach() {
+        ComponentMoves.attached(this)
+        state = State.ATTACHED
+        if (activeSubscriptions.isEmpty() && subscriptions.isNotEmpty()) {
+            val inbox = Inbox(weakReference())
+            activeSubscriptions = subscriptions.map { it.start(inbox) }
+        }
+    }
+
+    private fun detach() {
+        if (!ComponentMoves.deferDetach(this)) {
+            tearDown()
+        }
+    }
+
+    /**
+     * The component is detached for good: drop everything that is waiting or running for it.
+     */
+    internal fun tearDown() {
+        state = State.DETACHED
+        activeSubscriptions.forEach { it.remove() }
+        activeSubscriptions = emptyList()
+        pendingJobs.forEach { BlockingWork.cancel(it) }
+        pendingJobs.clear()
+        supersedableJobs.clear()
+        val waiting = synchronized(this) {
+            val closed = currentMailbox?.close() ?: emptyList()
+            currentMailbox = null
+            closed
+        }
+        waiting.forEach { delivery -> delivery.onProcessed?.let { dropped(it) } }
+        collectedCmds.clear()
+        runningCmds.clear()
+    }
+
+}
+
+/**
+ * Moves components within the UI without ending their bindModelAndView.
+ * <p>
+ * Vaadin can only move a component by removing it and adding it again, which fires a detach and an attach event. A
+ * detached component normally drops its waiting actions and cancels its subscriptions and async work, which is not
+ * what a move should do. During #move the detach of a component only takes effect when it is not attached again by
+ * the end of the move.
+ *
+ * <pre>
+ * ComponentMoves.move(() -> {
+ *     layout.removeComponent(card);
+ *     layout.addComponent(card, 0);
+ * });
+ * </pre>
+ */
+object ComponentMoves {
+
+    // The contexts detached during the current move (on this thread) and not attached again yet
+    private val detachedDuringMove = ThreadLocal<MutableSet<ComponentContext<*>>?>()
+
+    /**
+     * Run the move, must be called under the session lock.
+     */
+    @JvmStatic
+    fun move(move: Runnable) {
+        if (detachedDuringMove.get() != null) {
+            // Part of an outer move
+            move.run()
+            return
+        }
+        val detached = LinkedHashSet<ComponentContext<*>>()
+        detachedDuringMove.set(detached)
+        try {
+            move.run()
+        } finally {
+            detachedDuringMove.set(null)
+            detached.forEach { it.tearDown() }
+        }
+    }
+
+    /**
+     * @return true when the context is detached during a move, its teardown is up to the end of the move
+     */
+    internal fun deferDetach(context: ComponentContext<*>): Boolean {
+        val detached = detachedDuringMove.get() ?: return false
+        detached.add(context)
+        return true
+    }
+
+    internal fun attached(context: ComponentContext<*>) {
+        detachedDuringMove.get()?.remove(context)
+    }
+
+}
@@ -0,0 +1,146 @@
+package mvu.support
+
+import com.vaadin.shared.Registration
+import java.util.ArrayDeque
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * Timer which serves any number of timeouts with a single thread.
+ * <p>
+ * Time is divided in ticks, the timeouts are hashed into the buckets of a wheel by their deadline tick. Every tick
+ * the worker only looks at one bucket, so scheduling and cancelling are O(1) and an idle timeout costs one small
+ * object. The price is precision: a timeout fires up to one tick late.
+ * <p>
+ * The timer thread only does the bookkeeping, the tasks themselves run on the executor.
+ */
+internal class HashedWheelTimer(
+        tickDuration: Long = 100,
+        unit: TimeUnit = TimeUnit.MILLISECONDS,
+        wheelSize: Int = 512,
+        private val executor: Executor = ForkJoinPool.commonPool()) {
+
+    private val tickNanos = unit.toNanos(tickDuration)
+    private val wheel = Array(powerOfTwo(wheelSize)) { ArrayDeque<Timeout>() }
+    private val mask = wheel.size - 1
+
+    private val newTimeouts = ConcurrentLinkedQueue<Timeout>()
+    private val startNanos = System.nanoTime()
+
+    // Only accessed by the worker thread
+    private var tick = 0L
+
+    private val worker: Thread by lazy {
+        val thread = Thread(Runnable { work() }, "mvu-timer")
+        thread.isDaemon = true
+        thread.start()
+        thread
+    }
+
+    /**
+     * Run the task after the delay and then (when period > 0) every period.
+     *
+     * @return Registration which cancels the timeout
+     */
+    fun schedule(delay: Long, period: Long, unit: TimeUnit, task: Runnable): Registration {
+        val timeout = Timeout(task, unit.toNanos(period))
+        timeout.deadline = System.nanoTime() - startNanos + unit.toNanos(delay)
+        newTimeouts.add(timeout)
+        // Start the worker on first use
+        worker
+        return timeout
+    }
+
+    private fun work() {
+        while (true) {
+            val deadline = waitForNextTick()
+            val bucket = wheel[(tick and mask.toLong()).toInt()]
+            transferNewTimeouts()
+            expire(bucket, deadline)
+            tick++
+        }
+    }
+
+    private fun waitForNextTick(): Long {
+        val deadline = tickNanos * (tick + 1)
+        while (true) {
+            val now = System.nanoTime() - startNanos
+            val sleepNanos = deadline - now
+            if (sleepNanos <= 0) {
+                return now
+            }
+            LockSupport.parkNanos(sleepNanos)
+        }
+    }
+
+    private fun transferNewTimeouts() {
+        while (true) {
+            val timeout = newTimeouts.poll() ?: return
+            if (timeout.cancelled) {
+                continue
+            }
+            val deadlineTick = timeout.deadline / tickNanos
+            timeout.remainingRounds = (deadlineTick - tick) / wheel.size
+            // Deadlines in the past go into the current bucket
+            val bucketTick = Math.max(deadlineTick, tick)
+            wheel[(bucketTick and mask.toLong()).toInt()].add(timeout)
+        }
+    }
+
+    private fun expire(bucket: ArrayDeque<Timeout>, deadline: Long) {
+        val iterator = bucket.iterator()
+        while (iterator.hasNext()) {
+            val timeout = iterator.next()
+            when {
+                timeout.cancelled -> iterator.remove()
+                timeout.remainingRounds <= 0 && timeout.deadline <= deadline -> {
+                    iterator.remove()
+                    fire(timeout)
+                }
+                else -> timeout.remainingRounds--
+            }
+        }
+    }
+
+    private fun fire(timeout: Timeout) {
+        executor.execute(timeout.task)
+        if (timeout.periodNanos > 0) {
+            timeout.deadline += timeout.periodNanos
+            newTimeouts.add(timeout)
+        }
+    }
+
+    private fun powerOfTwo(size: Int): Int {
+        var powerOfTwo = 1
+        while (powerOfTwo < size) {
+            powerOfTwo = powerOfTwo shl 1
+        }
+        return powerOfTwo
+    }
+
+    companion object {
+        /**
+         * One timer for the whole application: thousands of components with timers share a single thread.
+         */
+        val shared: HashedWheelTimer by lazy { HashedWheelTimer() }
+    }
+
+    private class Timeout(val task: Runnable, val periodNanos: Long) : Registration {
+
+        @Volatile
+        var cancelled = false
+
+        // Nanos since the start of the timer, only accessed by the worker thread once scheduled
+        var deadline = 0L
+        var remainingRounds = 0L
+
+        override fun remove() {
+            cancelled = true
+        }
+
+    }
+
+}
@@ -0,0 +1,336 @@
+package mvu.support
+
+import java.util.ArrayDeque
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.LongAdder
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * What happens to an action delivered to a component whose mailbox is full.
+ */
+enum class OverflowPolicy {
+    /**
+     * The producer waits until there is room (at most Mailboxes#blockTimeoutMillis, then the action is dropped).
+     * Producers holding the session lock can't wait, their actions are always accepted.
+     */
+    BLOCK,
+
+    /**
+     * The new action is dropped.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The oldest waiting action is dropped.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The waiting action of the same type (class) is dropped, only the latest one is processed. When there is none,
+     * the oldest waiting action is dropped.
+     */
+    CONFLATE
+}
+
+/**
+ * High water mark and overflow counters of the mailboxes of one component type (application wide).
+ */
+class MailboxMetrics internal constructor() {
+
+    private val maxSize = AtomicInteger()
+    private val droppedActions = LongAdder()
+    private val conflatedActions = LongAdder()
+    private val blockedProducers = LongAdder()
+
+    /**
+     * The largest number of actions which were waiting in one mailbox.
+     */
+    val highWaterMark: Int
+        get() = maxSize.get()
+
+    val dropped: Long
+        get() = droppedActions.sum()
+
+    val conflated: Long
+        get() = conflatedActions.sum()
+
+    /**
+     * The number of times a producer had to wait (BLOCK).
+     */
+    val blocked: Long
+        get() = blockedProducers.sum()
+
+    fun reset() {
+        maxSize.set(0)
+        droppedActions.reset()
+        conflatedActions.reset()
+        blockedProducers.reset()
+    }
+
+    internal fun recordSize(size: Int) {
+        maxSize.accumulateAndGet(size) { max, current -> Math.max(max, current) }
+    }
+
+    internal fun recordDropped() = droppedActions.increment()
+
+    internal fun recordConflated() = conflatedActions.increment()
+
+    internal fun recordBlocked() = blockedProducers.increment()
+
+    override fun toString(): String {
+        return String.format("highWaterMark=%d dropped=%d conflated=%d blocked=%d", highWaterMark, dropped, conflated, blocked)
+    }
+
+}
+
+/**
+ * Application wide configuration of the mailboxes: the actions delivered to a component from outside of the UI thread
+ * (async results, subscriptions, ...) wait in its mailbox until the session processes them.
+ * <p>
+ * Mailboxes are unbounded by default. Bound them to protect the server against runaway producers, per component type
+ * (the class of the model) or for all components:
+ *
+ * <pre>
+ * Mailboxes.configure(PriceTicker.Model.class, 100, OverflowPolicy.CONFLATE);
+ * LOG.info("ticker mailbox: " + Mailboxes.metrics(PriceTicker.Model.class));
+ * </pre>
+ */
+object Mailboxes {
+
+    /**
+     * The capacity of the mailboxes of the component types which are not configured.
+     */
+    @JvmStatic
+    @Volatile
+    var defaultCapacity: Int = Int.MAX_VALUE
+
+    @JvmStatic
+    @Volatile
+    var defaultOverflowPolicy: OverflowPolicy = OverflowPolicy.DROP_OLDEST
+
+    /**
+     * How long a producer waits with OverflowPolicy.BLOCK.
+     */
+    @JvmStatic
+    @Volatile
+    var blockTimeoutMillis: Long = 10_000
+
+    private val configurations = ConcurrentHashMap<Class<*>, Configuration>()
+    private val metrics = ConcurrentHashMap<Class<*>, MailboxMetrics>()
+
+    /**
+     * Bound the mailboxes of the components with this type of model. Only applies to components bound afterwards.
+     */
+    @JvmStatic
+    fun configure(modelType: Class<*>, capacity: Int, overflowPolicy: OverflowPolicy) {
+        require(capacity > 0) { "The capacity must be positive" }
+        configurations[modelType] = Configuration(capacity, overflowPolicy)
+    }
+
+    @JvmStatic
+    fun metrics(modelType: Class<*>): MailboxMetrics = metrics.computeIfAbsent(modelType) { MailboxMetrics() }
+
+    /**
+     * The metrics of every component type which received actions so far.
+     */
+    @JvmStatic
+    fun allMetrics(): Map<Class<*>, MailboxMetrics> = HashMap(metrics)
+
+    internal fun newMailbox(modelType: Class<*>): Mailbox {
+        val configuration = configurations[modelType]
+        return if (configuration != null) {
+            Mailbox(configuration.capacity, configuration.overflowPolicy, metrics(modelType))
+        } else {
+            Mailbox(defaultCapacity, defaultOverflowPolicy, metrics(modelType))
+        }
+    }
+
+    private class Configuration(val capacity: Int, val overflowPolicy: OverflowPolicy)
+
+}
+
+/**
+ * The result of Mailbox#offer.
+ *
+ * @param dropped  The delivery which was dropped to respect the capacity (possibly the offered one)
+ * @param schedule The lane had no waiting deliveries before, the mailbox must be scheduled for it
+ */
+internal class Offer(val dropped: Delivery?, val schedule: Boolean) {
+
+    companion object {
+        val SCHEDULE = Offer(null, true)
+        val ACCEPTED = Offer(null, false)
+    }
+
+}
+
+/**
+ * The deliveries of one component which wait to be processed, per lane.
+ * <p>
+ * The ActionScheduler only queues the mailbox (once per lane) and takes one delivery at a time, so however many actions
+ * a producer fires, no more than the capacity is kept.
+ */
+internal class Mailbox(
+        private val capacity: Int,
+        private val overflowPolicy: OverflowPolicy,
+        private val metrics: MailboxMetrics) {
+
+    private val lock = ReentrantLock()
+    private val notFull = lock.newCondition()
+
+    private val userLane = ArrayDeque<Delivery>()
+    private val backgroundLane = ArrayDeque<Delivery>()
+    private var userLaneScheduled = false
+    private var backgroundLaneScheduled = false
+    private var closed = false
+
+    val size: Int
+        get() = lock.withLock { userLane.size + backgroundLane.size }
+
+    /**
+     * Add the delivery, applying the overflow policy when the mailbox is full.
+     *
+     * @param mayBlock False when the producer can't wait (e.g. it holds the session lock)
+     */
+    fun offer(delivery: Delivery, mayBlock: Boolean): Offer {
+        lock.withLock {
+            if (closed) {
+                return Offer(delivery, false)
+            }
+            var dropped: Delivery? = null
+            if (userLane.size + backgroundLane.size >= capacity) {
+                when (overflowPolicy) {
+                    OverflowPolicy.BLOCK -> if (mayBlock && !awaitRoom()) {
+                        metrics.recordDropped()
+                        return Offer(delivery, false)
+                    }
+                    OverflowPolicy.DROP_NEWEST -> {
+                        metrics.recordDropped()
+                        return Offer(delivery, false)
+                    }
+                    OverflowPolicy.DROP_OLDEST -> {
+                        dropped = dropOldest()
+                        metrics.recordDropped()
+                    }
+                    OverflowPolicy.CONFLATE -> {
+                        dropped = dropSameType(delivery.action.javaClass)
+                        if (dropped != null) {
+                            metrics.recordConflated()
+                        } else {
+                            dropped = dropOldest()
+                            metrics.recordDropped()
+                        }
+                    }
+                }
+                if (closed) {
+                    return Offer(delivery, false)
+                }
+            }
+            deque(delivery.lane).addLast(delivery)
+            metrics.recordSize(userLane.size + backgroundLane.size)
+            val schedule = markScheduled(delivery.lane)
+            return when {
+                dropped != null -> Offer(dropped, schedule)
+                schedule -> Offer.SCHEDULE
+                else -> Offer.ACCEPTED
+            }
+        }
+    }
+
+    /**
+     * The next delivery of the lane. When more are waiting, requeue is invoked to schedule the mailbox again.
+     */
+    fun take(lane: Lane, requeue: () -> Unit): Delivery? {
+        lock.withLock {
+            val delivery = deque(lane).pollFirst()
+            if (deque(lane).isEmpty()) {
+                when (lane) {
+                    Lane.USER -> userLaneScheduled = false
+                    Lane.BACKGROUND -> backgroundLaneScheduled = false
+                }
+            } else {
+                requeue()
+            }
+            if (delivery != null) {
+                notFull.signal()
+            }
+            return delivery
+        }
+    }
+
+    /**
+     * Drop whatever is waiting and refuse new deliveries (the component is detached).
+     *
+     * @return The deliveries which were waiting
+     */
+    fun close(): List<Delivery> {
+        lock.withLock {
+            closed = true
+            val waiting = ArrayList<Delivery>(userLane.size + backgroundLane.size)
+            waiting.addAll(userLane)
+            waiting.addAll(backgroundLane)
+            userLane.clear()
+            backgroundLane.clear()
+            notFull.signalAll()
+            return waiting
+        }
+    }
+
+    private fun awaitRoom(): Boolean {
+        metrics.recordBlocked()
+        var nanos = TimeUnit.MILLISECONDS.toNanos(Mailboxes.blockTimeoutMillis)
+        while (userLane.size + backgroundLane.size >= capacity && !closed) {
+            if (nanos <= 0) {
+                return false
+            }
+            nanos = notFull.awaitNanos(nanos)
+        }
+        return true
+    }
+
+    private fun dropOldest(): Delivery? {
+        // Background deliveries are dropped before the ones the user is waiting for
+        return backgroundLane.pollFirst() ?: userLane.pollFirst()
+    }
+
+    private fun dropSameType(actionType: Class<*>): Delivery? {
+        for (lane in listOf(backgroundLane, userLane)) {
+            val iterator = lane.descendingIterator()
+            while (iterator.hasNext()) {
+                val waiting = iterator.next()
+                if (waiting.action.javaClass == actionType) {
+                    iterator.remove()
+                    return waiting
+                }
+            }
+        }
+        return null
+    }
+
+    private fun deque(lane: Lane): ArrayDeque<Delivery> = when (lane) {
+        Lane.USER -> userLane
+        Lane.BACKGROUND -> backgroundLane
+    }
+
+    /**
+     * @return true when the lane was not scheduled yet
+     */
+    private fun markScheduled(lane: Lane): Boolean {
+        val wasScheduled: Boolean
+        when (lane) {
+            Lane.USER -> {
+                wasScheduled = userLaneScheduled
+                userLaneScheduled = true
+            }
+            Lane.BACKGROUND -> {
+                wasScheduled = backgroundLaneScheduled
+                backgroundLaneScheduled = true
+            }
+        }
+        return !wasScheduled
+    }
+
+}
@@ -0,0 +1,109 @@
+package mvu.support
+
+import com.vaadin.data.Binder
+import com.vaadin.data.ValueProvider
+import com.vaadin.server.SerializableConsumer
+import com.vaadin.server.SerializableFunction
+import com.vaadin.shared.Registration
+import com.vaadin.ui.Component
+import com.vaadin.ui.CustomComponent
+import java.io.Serializable
+import java.util.ArrayList
+
+/**
+ * The binder handed to the views of bindModelAndView.
+ * <p>
+ * On top of the regular (two-way) Vaadin bindings it keeps a registry of lightweight one-way bindings
+ * (model -> component). Read-only components such as labels and grids never write back to the model, so they don't
+ * need validation status, converters or setters. A read-only binding is only a value provider, the last value and a sink.
+ * <p>
+ * The sink is only invoked when the provided value changed (reference or equals) since the previous model.
+ *
+ * <pre>
+ * binder.bindReadOnly(model -> model.ticker, ticker -> label.setValue(Integer.toString(ticker)));
+ * </pre>
+ *
+ * @param <MODEL> Generic model parameter
+ */
+open class ModelBinder<MODEL> : Binder<MODEL>() {
+
+    private val readOnlyBindings = ArrayList<ReadOnlyBinding<MODEL, *>>()
+
+    override fun setBean(bean: MODEL?) {
+        super.setBean(bean)
+        if (bean != null) {
+            readOnlyBindings.forEach { it.refresh(bean) }
+        }
+    }
+
+    /**
+     * Bind a read-only (model -> component) value.
+     * <p>
+     * The sink is invoked immediately when there is already a model.
+     *
+     * @return Registration to remove the binding again
+     */
+    fun <TYPE> bindReadOnly(valueProvider: ValueProvider<MODEL, TYPE>, sink: SerializableConsumer<TYPE>): Registration {
+        val binding = ReadOnlyBinding(valueProvider, sink)
+        readOnlyBindings.add(binding)
+        val currentModel = bean
+        if (currentModel != null) {
+            binding.refresh(currentModel)
+        }
+        return Registration { readOnlyBindings.remove(binding) }
+    }
+
+    /**
+     * A binder for a slice of the model (Elm's Html.lazy): the bindings of the returned binder are only refreshed when
+     * the selected slice changed (reference or equals), any other change of the model skips the whole subtree.
+     *
+     * <pre>
+     * ModelBinder&lt;Totals&gt; totalsBinder = binder.memo(model -> model.totals);
+     * BoundLabel.builder(totalsBinder, Integer.class).withValueProvider(totals -> totals.count)...
+     * </pre>
+     */
+    fun <SLICE> memo(selector: ValueProvider<MODEL, SLICE>): ModelBinder<SLICE> {
+        val sliceBinder = ModelBinder<SLICE>()
+        bindReadOnly(selector, SerializableConsumer { slice -> sliceBinder.bean = slice })
+        return sliceBinder
+    }
+
+    /**
+     * A subtree which is only rendered again when the selected slice of the model changed (reference or equals).
+     * <p>
+     * Unlike #memo the subtree is rebuilt from scratch, which suits views without state of their own.
+     */
+    fun <SLICE> lazyView(selector: ValueProvider<MODEL, SLICE>, view: SerializableFunction<SLICE, Component>): Component {
+        val container = LazyView()
+        bindReadOnly(selector, SerializableConsumer { slice -> container.render(view.apply(slice)) })
+        return container
+    }
+
+}
+
+internal class LazyView : CustomComponent() {
+
+    fun render(component: Component) {
+        compositionRoot = component
+    }
+
+}
+
+internal class ReadOnlyBinding<MODEL, TYPE>(
+        private val valueProvider: ValueProvider<MODEL, TYPE>,
+        private val sink: SerializableConsumer<TYPE>) : Serializable {
+
+    private var hasValue = false
+    private var lastValue: TYPE? = null
+
+    fun refresh(model: MODEL) {
+        val value = valueProvider.apply(model)
+        if (hasValue && (lastValue === value || lastValue == value)) {
+            return
+        }
+        hasValue = true
+        lastValue = value
+        sink.accept(value)
+    }
+
+}
@@ -18,13 +18,17 @@
 package mvu.support
 
 import com.vaadin.data.Binder
+import com.vaadin.server.VaadinRequest
 import com.vaadin.server.VaadinSession
 import com.vaadin.shared.communication.PushMode
 import com.vaadin.ui.Component
 import com.vaadin.ui.PushConfiguration
 import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.isActive
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 
 /**
@@ -61,6 +65,25 @@ interface Update<MODEL> {
 }
 
 
+/**
+ * Kotlin Users: use UpdateWithEffectsKt
+ * Java Users: use UpdateWithEffects
+ */
+typealias UpdateWithEffectsKt<MODEL> = (action: Action, model: MODEL) -> ModelAndCmd<MODEL>
+
+
+/**
+ * Update which returns side effects (Cmd) together with the new model.
+ * <p>
+ * Kotlin Users: use UpdateWithEffectsKt
+ * Java Users: use UpdateWithEffects
+ */
+@FunctionalInterface
+interface UpdateWithEffects<MODEL> {
+    fun invoke(action: Action, model: MODEL): ModelAndCmd<MODEL>
+}
+
+
 /**
  * Bind the model and the view with a parent dispatcher.
  * <p>
@@ -128,16 +151,81 @@ fun <MODEL> bindModelAndView(parentDispatcher: Dispatcher,
                              model: MODEL,
                              view: View<MODEL>,
                              update: Update<MODEL>): Component {
+    return bindModelAndView(parentDispatcher, model, view, update, emptyList())
+}
+
+
+/**
+ * Same as {@link #bindModelAndView(Dispatcher, MODEL, View, Update)} with subscriptions to external sources of
+ * actions (Elm's Sub), e.g. a stream of price ticks or job progress.
+ * <p>
+ * The subscriptions are started when the component is attached and cancelled when it is detached.
+ *
+ * @param parentDispatcher Will be notified of any changes but should only
+ * @param model            Model to be bound to the view
+ * @param view             View which renders the bound model
+ * @param update           Set of dispatchers which respond to actions.
+ * @param subscriptions    External sources of actions for this component (see PublisherSub)
+ * @param <MODEL>          Generic model parameter
+ * @return A Vaadin component
+ */
+fun <MODEL> bindModelAndView(parentDispatcher: Dispatcher,
+                             model: MODEL,
+                             view: View<MODEL>,
+                             update: Update<MODEL>,
+                             subscriptions: List<Sub>): Component {
+    return bindModelAndViewWithEffects(parentDispatcher, model, view, withoutEffects(update), subscriptions)
+}
+
+
+/**
+ * Same as {@link #bindModelAndView(Dispatcher, MODEL, View, Update)} where the update returns side effects (Cmd)
+ * together with the new model, like in Elm:
+ *
+ * <pre>
+ * update : Msg -> Model -> ( Model, Cmd Msg )
+ * </pre>
+ *
+ * The Cmds of one update cycle are merged, deduplicated and performed in parallel by the async engine (which requires
+ * Vaadin Push, like AsyncActions).
+ *
+ * @param parentDispatcher Will be notified of any changes but should only
+ * @param model            Model to be bound to the view
+ * @param view             View which renders the bound model
+ * @param update           Produces the new model and the side effects for an action
+ * @param <MODEL>          Generic model parameter
+ * @return A Vaadin component
+ */
+fun <MODEL> bindModelAndViewWithEffects(parentDispatcher: Dispatcher,
+                                        model: MODEL,
+                                        view: View<MODEL>,
+                                        update: UpdateWithEffects<MODEL>): Component {
+    return bindModelAndViewWithEffects(parentDispatcher, model, view, update, emptyList())
+}
+
 
-    val binder = Binder<MODEL>()
+/**
+ * @see #bindModelAndViewWithEffects(Dispatcher, MODEL, View, UpdateWithEffects)
+ * @see #bindModelAndView(Dispatcher, MODEL, View, Update, List)
+ */
+fun <MODEL> bindModelAndViewWithEffects(parentDispatcher: Dispatcher,
+                                        model: MODEL,
+                                        view: View<MODEL>,
+                                        update: UpdateWithEffects<MODEL>,
+                                        subscriptions: List<Sub>): Component {
+
+    val binder = ModelBinder<MODEL>()
     binder.bean = model
 
     val vaadinSession = VaadinSession.getCurrent()
+    val context = ComponentContext(vaadinSession, binder, update, parentDispatcher)
     val dispatcher = Dispatcher(parentDispatcher.allDispatchers) { action ->
-        doSyncOrAsyncAction(vaadinSession, binder, update, parentDispatcher, action)
+        doSyncOrAsyncAction(context, action)
     }
 
-    return view.invoke(binder, dispatcher)
+    val component = view.invoke(binder, dispatcher)
+    context.bindTo(component, dispatcher, subscriptions)
+    return component
 
 }
 
@@ -151,6 +239,24 @@ fun <MODEL> bindModelAndViewKt(parentDispatcher: Dispatcher, model: MODEL, view:
 }
 
 
+/**
+ * Wrapper for Kotlin
+ * @see #bindModelAndView(parentDispatcher, model, view, update, subscriptions)
+ */
+fun <MODEL> bindModelAndViewKt(parentDispatcher: Dispatcher, model: MODEL, view: ViewKt<MODEL>, update: UpdateKt<MODEL>, subscriptions: List<Sub>): Component {
+    return bindModelAndView(parentDispatcher, model, view2kt(view), update2kt(update), subscriptions)
+}
+
+
+/**
+ * Wrapper for Kotlin
+ * @see #bindModelAndViewWithEffects(parentDispatcher, model, view, update)
+ */
+fun <MODEL> bindModelAndViewWithEffectsKt(parentDispatcher: Dispatcher, model: MODEL, view: ViewKt<MODEL>, update: UpdateWithEffectsKt<MODEL>): Component {
+    return bindModelAndViewWithEffects(parentDispatcher, model, view2kt(view), updateWithEffects2kt(update))
+}
+
+
 /**
  * Same as {@link #bindModelAndView(Dispatcher, MODEL, View, Update)} but without the parent dispatcher.
  * <p>
@@ -192,88 +298,192 @@ fun <MODEL> bindModelAndViewKt(model: MODEL, view: ViewKt<MODEL>, update: Update
  * <li>Right | Succeed: Fetching succeeded, run the action to process the result (e.g. update the UI with the remote data)</li>
  * </ul>
  *
- * @param binder  (Vaadin) UI binder
- * @param update  Set of dispatchers which respond to actions.
+ * @param context (Vaadin) UI binder, update function and lifecycle of the component
  * @param action  Action to run
  * @param <MODEL> Generic model parameter
  */
-private fun <MODEL> doSyncOrAsyncAction(
-        vaadinSession: VaadinSession,
-        binder: Binder<MODEL>,
-        update: Update<MODEL>,
-        parentDispatcher: Dispatcher,
-        action: Action) = runBlocking {
+private fun <MODEL> doSyncOrAsyncAction(context: ComponentContext<MODEL>, action: Action) {
+    if (context.isDetached) {
+        return
+    }
+    if (action is CancelSuperseded) {
+        context.cancelSuperseded(action.supersedeKey)
+        return
+    }
     if (action is AsyncAction<*, *, *>) {
-        val pushEnabled = isPushEnabled(vaadinSession)
+        val pushEnabled = isPushEnabled(context.vaadinSession)
         if (!pushEnabled) {
             throw RuntimeException("Vaadin Push must be enabled for AsyncActions. Enable @Push for this UI.")
         }
-        // First run the start action (e.g. set the screen to 'Loading'
-        doSyncAction(vaadinSession, binder, parentDispatcher, update, action.startAction as Action)
-        // Then run the async task itself
-        // TODO: can we use coroutines here?
-        println("Starting async action on ${Thread.currentThread().id}")
-        GlobalScope.launch {
-            println("Run async action on ${Thread.currentThread().id}")
-            val eitherErrorOrResult: AsyncActionResult<Action, Action> = action.perform()
-            println("Run async action result on ${Thread.currentThread().id}")
-            if (eitherErrorOrResult.isLeft) {
-                doSyncAction(vaadinSession, binder, parentDispatcher, update, eitherErrorOrResult.left())
-            } else {
-                doSyncAction(vaadinSession, binder, parentDispatcher, update, eitherErrorOrResult.right())
-            }
+        context.batch {
+            // First run the start action (e.g. set the screen to 'Loading'
+            (action.startAction as Action?)?.let { doSyncAction(context, it) }
+            // Then run the async task itself (see AsyncExecution for the threading)
+            launchAsync(context, action)
+            // And run the action through the dispatcher (typically this is *not* a broadcast action so only the owner component should respond to this
+            doSyncAction(context, action)
         }
-        println("Continuing after async action on ${Thread.currentThread().id}")
-//        val f: CompletableFuture<AsyncActionResult<out Action, out Action>>  = CompletableFuture.supplyAsync<AsyncActionResult<out Action, out Action>> {
-//            action.perform()
-//        }
-        // And run the action through the dispatcher (typically this is *not* a broadcast action so only the owner component should respond to this
-        doSyncAction(vaadinSession, binder, parentDispatcher, update, action)
-        // When the result comes back execute either the Fail or the Success action
-//        f.thenAccept { eitherLeftOrRight: AsyncActionResult<out Action, out Action> ->
-//            if (eitherLeftOrRight.isLeft) {
-//                doSyncAction(vaadinSession, binder, parentDispatcher, update, eitherLeftOrRight.left())
-//            } else {
-//                doSyncAction(vaadinSession, binder, parentDispatcher, update, eitherLeftOrRight.right())
-//            }
-//        }
+        performCmds(context)
     } else {
-        doSyncAction(vaadinSession, binder, parentDispatcher, update, action)
+        doSyncAction(context, action)
+    }
+}
+
+/**
+ * Perform the async action in the background and dispatch its Left or Right result to the component.
+ * <p>
+ * The async part only holds a weak reference to the component context. When the component is detached before the
+ * result arrives, the job is cancelled and the result is dropped. The job is a child of the job of the UI (see
+ * Resources#parentJob), so it is cancelled as well when the tab is closed or the session destroyed. Cancelling
+ * interrupts a perform() which is blocked (see BlockingWork).
+ */
+private fun <MODEL> launchAsync(context: ComponentContext<MODEL>, action: AsyncAction<*, *, *>): Job {
+    val contextRef = context.weakReference()
+    val watch = AsyncWatch.current()
+    watch?.started()
+    val delivered = AtomicBoolean(false)
+    val parentJob = Resources.parentJob(context.vaadinSession, context.ui)
+    val job = GlobalScope.launch(AsyncExecution.dispatcher + parentJob) {
+        val eitherErrorOrResult: AsyncActionResult<Action, Action> = BlockingWork.run(coroutineContext[Job]!!) { action.perform<Action, Action>() }
+        val currentContext = contextRef.get()
+        if (!isActive || currentContext == null || currentContext.isDetached) {
+            // The component is gone, nobody is interested in the result anymore
+            return@launch
+        }
+        val result = if (eitherErrorOrResult.isLeft) eitherErrorOrResult.left() else eitherErrorOrResult.right()
+        delivered.set(true)
+        currentContext.deliver(result, laneOf(result), watch?.let { Runnable { it.finished() } })
+    }
+    if (watch != null) {
+        val vaadinSession = context.vaadinSession
+        job.invokeOnCompletion {
+            if (!delivered.get()) {
+                // Cancelled or dropped, there won't be a result
+                vaadinSession.access { watch.finished() }
+            }
+        }
+    }
+    context.track(job)
+    if (action is SupersedingAsyncAction<*, *, *>) {
+        context.supersede(action.supersedeKey, job)
+    }
+    return job
+}
+
+/**
+ * Dispatch the action and run onDone once the AsyncActions (and Cmds) it started have dispatched their Left or Right
+ * result, or right after the dispatch when it did not start any. Used by DispatchButton#withInFlightGuard.
+ * <p>
+ * AsyncActions which are cancelled, fail, or of which the result is dropped (e.g. the component was detached) count as
+ * done as well, so onDone always runs.
+ * <p>
+ * Must be called under the session lock, onDone runs under the session lock as well.
+ */
+fun dispatchTracked(dispatcher: (Action) -> Unit, action: Action, onDone: Runnable) {
+    AsyncWatch(onDone).watch { dispatcher(action) }
+}
+
+/**
+ * Counts the AsyncActions started while dispatching one action (on the current thread) until their results are in.
+ */
+private class AsyncWatch(private val onDone: Runnable) {
+
+    // One for the dispatch itself
+    private val running = AtomicInteger(1)
+
+    fun watch(block: () -> Unit) {
+        val outer = current.get()
+        current.set(this)
+        try {
+            block()
+        } finally {
+            current.set(outer)
+            finished()
+        }
+    }
+
+    fun started() {
+        running.incrementAndGet()
+    }
+
+    fun finished() {
+        if (running.decrementAndGet() == 0) {
+            onDone.run()
+        }
+    }
+
+    companion object {
+
+        private val current = ThreadLocal<AsyncWatch?>()
+
+        fun current(): AsyncWatch? = current.get()
+
+    }
+
+}
+
+/**
+ * Perform the Cmds collected during the last update cycle, all of them in parallel.
+ */
+private fun <MODEL> performCmds(context: ComponentContext<MODEL>) {
+    if (!context.hasCmdsToRelease) {
+        return
+    }
+    if (!isPushEnabled(context.vaadinSession)) {
+        // Not released: released Cmds count as running, equal Cmds would be skipped from now on
+        context.discardCmds()
+        throw RuntimeException("Vaadin Push must be enabled for Cmds. Enable @Push for this UI.")
+    }
+    val asyncActions = context.releaseCmds()
+    val contextRef = context.weakReference()
+    asyncActions.forEach { asyncAction ->
+        launchAsync(context, asyncAction).invokeOnCompletion { contextRef.get()?.cmdDone(asyncAction) }
     }
 }
 
 /**
  * Helper method which runs an action through the dispatchers.
+ * <p>
+ * Actions for detached components are ignored: there is no point in updating or pushing a view nobody can see.
+ * <p>
+ * The update always runs under the session lock. Actions arriving on a background thread (async results,
+ * subscriptions) first hop onto the session through the ActionScheduler, otherwise two concurrent updates could both
+ * start from the same old model.
+ * <p>
+ * The Cmds returned by the update are performed at the end of the update cycle (see ComponentContext#batch).
  *
- * @param binder  (Vaadin) UI binder
- * @param update  Set of dispatchers which respond to actions.
+ * @param context (Vaadin) UI binder, update function and lifecycle of the component
  * @param action  Action to run
  * @param <MODEL> Generic model parameter
  */
-private fun <MODEL> doSyncAction(vaadinSession: VaadinSession,
-                                 binder: Binder<MODEL>,
-                                 parentDispatcher: Dispatcher,
-                                 update: Update<MODEL>,
-                                 action: Action) {
+private fun <MODEL> doSyncAction(context: ComponentContext<MODEL>, action: Action) {
+    if (context.isDetached) {
+        return
+    }
+    val pushEnabled = isPushEnabled(context.vaadinSession)
+    if (pushEnabled && !context.vaadinSession.hasLock()) {
+        context.deliver(action, laneOf(action), null)
+        return
+    }
+
+    val binder = context.binder
     val oldModel = binder.bean
-    val newModel = update.invoke(action, oldModel)
+    val modelAndCmd = context.update.invoke(action, oldModel)
+    context.collect(modelAndCmd.cmd)
 
     if (action is BroadcastAction) {
-        parentDispatcher.allDispatchers.forEach { dispatcher ->
+        context.parentDispatcher.allDispatchers.forEach { dispatcher ->
             dispatcher(action)
         }
     }
 
-    if (isPushEnabled(vaadinSession)) {
-        vaadinSession.uIs.forEach { ui ->
-            ui.access {
-                binder.bean = newModel
-                ui.push()
-            }
-        }
-    } else {
-        binder.setBean(newModel)
+    binder.bean = modelAndCmd.model
+    if (pushEnabled && VaadinRequest.getCurrent() == null && !PushBatch.isActive()) {
+        // Not part of a client round trip, so push the changes ourselves (batches push once at the end)
+        context.uis().forEach { ui -> ui.push() }
     }
+
+    performCmds(context)
 }
 
 private fun isPushEnabled(vaadinSession: VaadinSession): Boolean {
@@ -299,6 +509,28 @@ fun <MODEL> view2kt(viewKt: ViewKt<MODEL>): View<MODEL> {
     }
 }
 
+/**
+ * Convert a Kotlin UpdateWithEffectsKt type to a Java UpdateWithEffects type
+ */
+fun <MODEL> updateWithEffects2kt(updateKt: UpdateWithEffectsKt<MODEL>): UpdateWithEffects<MODEL> {
+    return object : UpdateWithEffects<MODEL> {
+        override fun invoke(action: Action, model: MODEL): ModelAndCmd<MODEL> {
+            return updateKt.invoke(action, model)
+        }
+    }
+}
+
+/**
+ * A plain Update is an UpdateWithEffects which never has any effects
+ */
+private fun <MODEL> withoutEffects(update: Update<MODEL>): UpdateWithEffects<MODEL> {
+    return object : UpdateWithEffects<MODEL> {
+        override fun invoke(action: Action, model: MODEL): ModelAndCmd<MODEL> {
+            return ModelAndCmd.of(update.invoke(action, model))
+        }
+    }
+}
+
 /**
  * Convert a Kotlin UpdateKt type to a Java Update type
  */
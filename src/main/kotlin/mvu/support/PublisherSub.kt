@@ -0,0 +1,146 @@
+package mvu.support
+
+import com.vaadin.shared.Registration
+import java.util.concurrent.Flow
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+import java.util.logging.Level
+import java.util.logging.Logger
+
+/**
+ * What to do when a publisher produces actions faster than the UI can process them.
+ */
+enum class BackpressureStrategy {
+    /**
+     * Only request the next action once the previous one was processed by the UI.
+     * <p>
+     * Nothing is lost, the publisher decides what to do with the actions it cannot hand out yet.
+     */
+    REQUEST,
+
+    /**
+     * Accept everything but only keep the latest action while the UI is busy. Typically for "current value" streams
+     * such as price ticks or progress where intermediate values are irrelevant.
+     */
+    CONFLATE,
+
+    /**
+     * Accept everything but drop actions arriving while the UI is still busy with the previous one.
+     */
+    DROP
+}
+
+/**
+ * Subscribe a component to a (Java 9+) Flow.Publisher of actions.
+ *
+ * <pre>
+ * SubmissionPublisher&lt;Action&gt; ticks = ...;
+ * bindModelAndView(parentDispatcher, initialModel, Prices::view, Prices::update,
+ *         Collections.singletonList(PublisherSubKt.fromPublisher(ticks, BackpressureStrategy.CONFLATE)));
+ * </pre>
+ *
+ * @param publisher The source of actions
+ * @param strategy  What to do when the UI cannot keep up (defaults to REQUEST)
+ */
+@JvmOverloads
+fun fromPublisher(publisher: Flow.Publisher<out Action>, strategy: BackpressureStrategy = BackpressureStrategy.REQUEST): Sub {
+    return PublisherSub(publisher, strategy)
+}
+
+private class PublisherSub(private val publisher: Flow.Publisher<out Action>, private val strategy: BackpressureStrategy) : Sub {
+
+    override fun start(inbox: Inbox): Registration {
+        val subscriber = InboxSubscriber(inbox, strategy)
+        // Safe: the subscriber accepts any action
+        @Suppress("UNCHECKED_CAST")
+        val actionPublisher = publisher as Flow.Publisher<Action>
+        actionPublisher.subscribe(subscriber)
+        return Registration { subscriber.cancel() }
+    }
+
+}
+
+private class InboxSubscriber(private val inbox: Inbox, private val strategy: BackpressureStrategy) : Flow.Subscriber<Action> {
+
+    private val subscription = AtomicReference<Flow.Subscription?>()
+
+    @Volatile
+    private var cancelled = false
+
+    // The UI is processing an action (CONFLATE and DROP only)
+    private val busy = AtomicBoolean(false)
+    // The latest action which arrived while the UI was busy (CONFLATE only)
+    private val latest = AtomicReference<Action?>()
+
+    override fun onSubscribe(subscription: Flow.Subscription) {
+        if (cancelled || !this.subscription.compareAndSet(null, subscription)) {
+            subscription.cancel()
+            return
+        }
+        when (strategy) {
+            BackpressureStrategy.REQUEST -> subscription.request(1)
+            BackpressureStrategy.CONFLATE, BackpressureStrategy.DROP -> subscription.request(Long.MAX_VALUE)
+        }
+    }
+
+    override fun onNext(action: Action) {
+        if (cancelled) {
+            return
+        }
+        when (strategy) {
+            BackpressureStrategy.REQUEST ->
+                inbox.deliver(action, Runnable { requestNext() })
+            BackpressureStrategy.CONFLATE -> {
+                latest.set(action)
+                drainLatest()
+            }
+            BackpressureStrategy.DROP ->
+                if (busy.compareAndSet(false, true)) {
+                    inbox.deliver(action, Runnable { busy.set(false) })
+                }
+        }
+    }
+
+    override fun onError(throwable: Throwable) {
+        logger.log(Level.WARNING, "Subscription failed, no more actions will be delivered", throwable)
+        subscription.set(null)
+    }
+
+    override fun onComplete() {
+        // The subscription is over, there is nothing to request or cancel anymore
+        subscription.set(null)
+    }
+
+    fun cancel() {
+        cancelled = true
+        subscription.getAndSet(null)?.cancel()
+    }
+
+    private fun requestNext() {
+        if (!cancelled) {
+            subscription.get()?.request(1)
+        }
+    }
+
+    private fun drainLatest() {
+        while (busy.compareAndSet(false, true)) {
+            val next = latest.getAndSet(null)
+            if (next != null) {
+                inbox.deliver(next, Runnable {
+                    busy.set(false)
+                    drainLatest()
+                })
+                return
+            }
+            busy.set(false)
+            if (latest.get() == null) {
+                return
+            }
+        }
+    }
+
+    companion object {
+        private val logger = Logger.getLogger(InboxSubscriber::class.java.name)
+    }
+
+}
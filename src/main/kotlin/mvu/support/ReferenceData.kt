@@ -0,0 +1,128 @@
+package mvu.support
+
+import com.vaadin.shared.Registration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+import java.util.function.Function
+import java.util.function.UnaryOperator
+
+/**
+ * Application wide, versioned reference data (countries, products, a loaded dataset, ...) shared by all sessions.
+ * <p>
+ * Instead of a copy of the data in every model, models hold a Snapshot: an immutable handle to one version of the
+ * data. Ten thousand sessions looking at the same version hold a reference to a single copy.
+ * <p>
+ * Updates are copy-on-write: they produce a new value and a new version, existing snapshots never change. Components
+ * which depend on the data join the #subscription to receive an action with the new snapshot.
+ *
+ * <pre>
+ * static final ReferenceData&lt;List&lt;Person&gt;&gt; HEROS = new ReferenceData&lt;&gt;(Collections.emptyList());
+ *
+ * bindModelAndView(parentDispatcher, initialModel, HerosGrid::view, HerosGrid::update,
+ *         Collections.singletonList(HEROS.subscription(HerosChanged::new)));
+ *
+ * HEROS.set(Collections.unmodifiableList(loadedHeros));
+ * </pre>
+ *
+ * The values must be immutable (e.g. unmodifiable collections): they are read by many threads without locking.
+ *
+ * @param initialValue Value of version 0
+ */
+class ReferenceData<VALUE>(initialValue: VALUE) {
+
+    /**
+     * One version of the data. Snapshots are cheap to hold and to compare (by version).
+     */
+    class Snapshot<VALUE> internal constructor(val version: Long, val value: VALUE) {
+
+        override fun equals(other: Any?): Boolean {
+            return other is Snapshot<*> && other.version == version && other.value === value
+        }
+
+        override fun hashCode(): Int = version.hashCode()
+
+        override fun toString(): String = "Snapshot(version=$version)"
+
+    }
+
+    private val current = AtomicReference(Snapshot(0, initialValue))
+    private val dependents = CopyOnWriteArrayList<Dependent>()
+
+    /**
+     * The current version.
+     */
+    fun snapshot(): Snapshot<VALUE> = current.get()
+
+    /**
+     * Replace the data with a new version and notify the dependent components.
+     *
+     * @return The new snapshot
+     */
+    fun set(value: VALUE): Snapshot<VALUE> {
+        return update(UnaryOperator { value })
+    }
+
+    /**
+     * Derive a new version from the current one (copy-on-write) and notify the dependent components.
+     * <p>
+     * The transformation may run more than once when updates race, so it must not have side effects.
+     *
+     * @return The new snapshot
+     */
+    fun update(transformation: UnaryOperator<VALUE>): Snapshot<VALUE> {
+        while (true) {
+            val oldSnapshot = current.get()
+            val newSnapshot = Snapshot(oldSnapshot.version + 1, transformation.apply(oldSnapshot.value))
+            if (current.compareAndSet(oldSnapshot, newSnapshot)) {
+                dependents.forEach { it.notifyChanged() }
+                return newSnapshot
+            }
+        }
+    }
+
+    /**
+     * Receive an action with the new snapshot after every update, while the component is attached.
+     * <p>
+     * Updates are conflated: a component which is still processing a change only receives the latest version
+     * afterwards, never a backlog of versions.
+     *
+     * @param changed Creates the action for the new snapshot
+     */
+    fun subscription(changed: Function<Snapshot<VALUE>, out Action>): Sub {
+        return object : Sub {
+            override fun start(inbox: Inbox): Registration {
+                val dependent = Dependent(inbox, changed)
+                dependents.add(dependent)
+                return Registration { dependents.remove(dependent) }
+            }
+        }
+    }
+
+    private inner class Dependent(
+            private val inbox: Inbox,
+            private val changed: Function<Snapshot<VALUE>, out Action>) {
+
+        private val busy = AtomicBoolean(false)
+
+        @Volatile
+        private var deliveredVersion = -1L
+
+        fun notifyChanged() {
+            if (!busy.compareAndSet(false, true)) {
+                // Picked up when the current delivery is processed
+                return
+            }
+            val snapshot = current.get()
+            inbox.deliver(changed.apply(snapshot), Runnable {
+                deliveredVersion = snapshot.version
+                busy.set(false)
+                if (current.get().version != deliveredVersion) {
+                    notifyChanged()
+                }
+            })
+        }
+
+    }
+
+}
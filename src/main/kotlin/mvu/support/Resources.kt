@@ -0,0 +1,291 @@
+package mvu.support
+
+import com.vaadin.server.VaadinService
+import com.vaadin.server.VaadinSession
+import com.vaadin.ui.UI
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import java.util.Collections
+import java.util.WeakHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Supplier
+import java.util.logging.Level
+import java.util.logging.Logger
+
+/**
+ * How long a resource lives, see Resources.
+ */
+enum class ResourceScope {
+    /**
+     * Until the application (the VaadinService) is destroyed.
+     */
+    APPLICATION,
+
+    /**
+     * Until the session is destroyed (closed or expired).
+     */
+    SESSION,
+
+    /**
+     * Until the UI is detached (the tab is closed, or the session is destroyed).
+     */
+    UI
+}
+
+/**
+ * Executors and other resources shared by the components of an application, a session or a UI, closed automatically
+ * at the end of that scope.
+ * <p>
+ * Resources are shared by name within a scope: the first request creates the resource, the next ones (also from other
+ * components) get the same instance. Don't keep them in a model, request them where they are needed.
+ *
+ * <pre>
+ * ExecutorService reports = Resources.executor(ResourceScope.SESSION, "reports", 2);
+ * </pre>
+ *
+ * The SESSION and UI scopes are those of the current session and UI, so request them under the session lock (in a
+ * view, an update or a listener).
+ */
+object Resources {
+
+    private val logger = Logger.getLogger(Resources::class.java.name)
+
+    // Without a VaadinService (e.g. plain unit tests) the application scope lives as long as the JVM
+    private val jvmRegistry = ResourceRegistry("application")
+    private val applicationRegistries: MutableMap<VaadinService, ResourceRegistry> = WeakHashMap()
+
+    /**
+     * A pool of daemon threads which end when idle. The first request for the name decides the number of threads.
+     */
+    @JvmStatic
+    fun executor(scope: ResourceScope, name: String, threads: Int): ExecutorService {
+        return registry(scope).getOrCreate("executor:$name", { newExecutor(scope, name, threads) }, { it.shutdownNow() })
+    }
+
+    /**
+     * Same as #executor for delayed and periodic tasks.
+     */
+    @JvmStatic
+    fun scheduledExecutor(scope: ResourceScope, name: String, threads: Int): ScheduledExecutorService {
+        return registry(scope).getOrCreate("scheduled:$name", { newScheduledExecutor(scope, name, threads) }, { it.shutdownNow() })
+    }
+
+    /**
+     * Any other resource, e.g. a connection pool, created by the factory on the first request and closed at the end of
+     * the scope.
+     */
+    @JvmStatic
+    fun <T : AutoCloseable> resource(scope: ResourceScope, name: String, factory: Supplier<T>): T {
+        return registry(scope).getOrCreate("resource:$name", { factory.get() }, { it.close() })
+    }
+
+    internal fun registry(scope: ResourceScope): ResourceRegistry {
+        return when (scope) {
+            ResourceScope.APPLICATION -> applicationRegistry()
+            ResourceScope.SESSION -> scopedResources(currentSession()).session
+            ResourceScope.UI -> {
+                val ui = UI.getCurrent() ?: throw IllegalStateException("There is no current UI for a UI scoped resource")
+                scopedResources(ui.session ?: currentSession()).of(ui)
+            }
+        }
+    }
+
+    /**
+     * The parent job of the async work of the components in a UI (or of the session, for components which are not
+     * attached yet). It is cancelled when the UI is detached or the session destroyed, together with its children.
+     * Must be called under the session lock.
+     */
+    internal fun parentJob(session: VaadinSession, ui: UI?): Job {
+        val scopedResources = scopedResources(session)
+        val registry = if (ui != null) scopedResources.of(ui) else scopedResources.session
+        if (registry.isClosed) {
+            // Too late, whatever is started now is cancelled right away
+            return cancelledJob
+        }
+        return registry.getOrCreate("job", { SupervisorJob() }, { job ->
+            job.children.forEach { BlockingWork.cancel(it) }
+            job.cancel()
+        })
+    }
+
+    private val cancelledJob: Job = Job().apply { cancel() }
+
+    private fun currentSession(): VaadinSession {
+        return VaadinSession.getCurrent() ?: throw IllegalStateException("There is no current session for a session scoped resource")
+    }
+
+    private fun applicationRegistry(): ResourceRegistry {
+        val service = VaadinService.getCurrent() ?: return jvmRegistry
+        synchronized(applicationRegistries) {
+            return applicationRegistries.getOrPut(service) {
+                val registry = ResourceRegistry("application")
+                service.addServiceDestroyListener { registry.close() }
+                registry
+            }
+        }
+    }
+
+    // Not kept in the session attributes: the registries hold executors, jobs, ... which can't be serialized
+    private val sessionResources: MutableMap<VaadinSession, ScopedResources> = WeakHashMap()
+
+    /**
+     * The session and UI resources of the session, must be called under the session lock.
+     */
+    private fun scopedResources(session: VaadinSession): ScopedResources {
+        synchronized(sessionResources) {
+            val existing = sessionResources[session]
+            if (existing != null) {
+                return existing
+            }
+        }
+        listenToSessionDestroy(session.service)
+        synchronized(sessionResources) {
+            return sessionResources.getOrPut(session) { ScopedResources() }
+        }
+    }
+
+    /**
+     * The UI is detached: close its registry.
+     */
+    internal fun uiDetached(ui: UI) {
+        val session = ui.session ?: return
+        val scopedResources = synchronized(sessionResources) { sessionResources[session] }
+        scopedResources?.closeUI(ui)
+    }
+
+    private val servicesWithListener: MutableSet<VaadinService> = Collections.newSetFromMap(WeakHashMap())
+
+    private fun listenToSessionDestroy(service: VaadinService) {
+        synchronized(servicesWithListener) {
+            if (servicesWithListener.add(service)) {
+                service.addSessionDestroyListener { event ->
+                    val session = event.session
+                    session.accessSynchronously {
+                        // The closed resources stay (until the session is garbage collected), see ScopedResources
+                        synchronized(sessionResources) { sessionResources[session] }?.close()
+                    }
+                }
+            }
+        }
+    }
+
+    private fun newExecutor(scope: ResourceScope, name: String, threads: Int): ExecutorService {
+        val pool = ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, LinkedBlockingQueue<Runnable>(), threadFactory(scope, name))
+        pool.allowCoreThreadTimeOut(true)
+        return pool
+    }
+
+    private fun newScheduledExecutor(scope: ResourceScope, name: String, threads: Int): ScheduledExecutorService {
+        val pool = ScheduledThreadPoolExecutor(threads, threadFactory(scope, name))
+        pool.removeOnCancelPolicy = true
+        return pool
+    }
+
+    private fun threadFactory(scope: ResourceScope, name: String): ThreadFactory {
+        val threadCounter = AtomicInteger(1)
+        return ThreadFactory { runnable ->
+            val thread = Thread(runnable, "mvu-${scope.name.toLowerCase()}-$name-${threadCounter.getAndIncrement()}")
+            thread.isDaemon = true
+            thread
+        }
+    }
+
+    internal fun logCloseFailure(scopeName: String, key: String, e: Exception) {
+        logger.log(Level.WARNING, "Closing the $scopeName resource $key failed", e)
+    }
+
+}
+
+/**
+ * The session registry and the registries of the UIs in the session (closed when the UI is detached).
+ * <p>
+ * A closed registry is kept as long as its UI (or session), so async work which is started afterwards finds it closed
+ * and is cancelled right away, instead of getting a new registry which is never closed.
+ */
+internal class ScopedResources {
+
+    val session = ResourceRegistry("session")
+    // Weak keys: the UI references its session, which is the (weak) key of these resources
+    private val uis: MutableMap<UI, ResourceRegistry> = WeakHashMap()
+
+    /**
+     * Must be called under the session lock.
+     */
+    fun of(ui: UI): ResourceRegistry {
+        return uis.getOrPut(ui) {
+            val registry = ResourceRegistry("UI")
+            if (session.isClosed) {
+                registry.close()
+            } else {
+                // Only captures the UI, the listener is serialized with it
+                ui.addDetachListener { Resources.uiDetached(ui) }
+            }
+            registry
+        }
+    }
+
+    fun closeUI(ui: UI) {
+        uis.getOrPut(ui) { ResourceRegistry("UI") }.close()
+    }
+
+    fun close() {
+        uis.values.forEach { it.close() }
+        session.close()
+    }
+
+}
+
+/**
+ * The resources of one scope, closed in the reverse order of their creation.
+ */
+internal class ResourceRegistry(private val scopeName: String) {
+
+    private val resources = LinkedHashMap<String, Managed<*>>()
+    private var closed = false
+
+    val isClosed: Boolean
+        @Synchronized get() = closed
+
+    @Synchronized
+    fun <T : Any> getOrCreate(key: String, factory: () -> T, close: (T) -> Unit): T {
+        if (closed) {
+            throw IllegalStateException("The $scopeName scope is closed, $key is not available anymore")
+        }
+        @Suppress("UNCHECKED_CAST")
+        val existing = resources[key] as Managed<T>?
+        if (existing != null) {
+            return existing.value
+        }
+        val value = factory()
+        resources[key] = Managed(value, close)
+        return value
+    }
+
+    fun close() {
+        val toClose = synchronized(this) {
+            closed = true
+            val all = resources.entries.toList().asReversed()
+            resources.clear()
+            all
+        }
+        toClose.forEach { (key, managed) ->
+            try {
+                managed.close()
+            } catch (e: Exception) {
+                Resources.logCloseFailure(scopeName, key, e)
+            }
+        }
+    }
+
+    private class Managed<T>(val value: T, private val closer: (T) -> Unit) {
+        fun close() = closer(value)
+    }
+
+}
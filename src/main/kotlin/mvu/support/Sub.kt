@@ -0,0 +1,60 @@
+package mvu.support
+
+import com.vaadin.shared.Registration
+import java.lang.ref.WeakReference
+
+/**
+ * A subscription to an external source of actions, the equivalent of Elm's Sub.
+ * <p>
+ * Where regular actions are triggered by the user, subscriptions produce actions by themselves: price ticks,
+ * job progress, timers, ... They are passed to bindModelAndView, started when the component is attached and stopped
+ * (see the returned Registration) when it is detached again.
+ */
+@FunctionalInterface
+interface Sub {
+
+    /**
+     * Start producing actions into the inbox.
+     *
+     * @param inbox Delivers the actions to the component
+     * @return Registration which stops the subscription
+     */
+    fun start(inbox: Inbox): Registration
+
+}
+
+/**
+ * Delivers actions which are produced outside of the UI thread to a component.
+ * <p>
+ * The inbox only holds a weak reference to the component: a subscription which outlives its component does not keep
+ * it in memory. Actions delivered to a detached (or collected) component are dropped.
+ */
+class Inbox internal constructor(private val contextRef: WeakReference<out ComponentContext<*>>) {
+
+    internal val context: ComponentContext<*>?
+        get() = contextRef.get()
+
+    /**
+     * Queue the action for the component, in the BACKGROUND lane unless it is a HighPriorityAction.
+     */
+    fun deliver(action: Action) {
+        contextRef.get()?.deliver(action, laneOf(action), null)
+    }
+
+    /**
+     * Queue the action for the component in the given lane.
+     */
+    fun deliver(action: Action, lane: Lane) {
+        contextRef.get()?.deliver(action, lane, null)
+    }
+
+    /**
+     * Queue the action for the component, onProcessed runs (under the session lock) after the update.
+     * <p>
+     * This is the hook for backpressure: only produce the next action once the previous one was processed.
+     */
+    fun deliver(action: Action, onProcessed: Runnable) {
+        contextRef.get()?.deliver(action, laneOf(action), onProcessed)
+    }
+
+}
@@ -0,0 +1,57 @@
+package mvu.support
+
+import com.vaadin.shared.Registration
+import java.time.Instant
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.function.Function
+import java.util.function.Supplier
+
+/**
+ * Subscription which produces an action every interval, e.g. to poll or auto-refresh (Elm's Time.every).
+ *
+ * <pre>
+ * bindModelAndView(parentDispatcher, initialModel, Clock::view, Clock::update,
+ *         Collections.singletonList(TimerSubKt.every(1, TimeUnit.SECONDS, now -> new Tick(now))));
+ * </pre>
+ * <p>
+ * Ticks are dropped while the component is still processing the previous one, so a slow update never builds up a
+ * backlog. The timer has a resolution of 100 milliseconds.
+ *
+ * @param interval Time between two ticks
+ * @param unit     Unit of the interval
+ * @param tick     Creates the action for the current time
+ */
+fun every(interval: Long, unit: TimeUnit, tick: Function<Instant, out Action>): Sub {
+    return TimerSub(interval, interval, unit, tick)
+}
+
+/**
+ * Subscription which produces a single action after the delay, e.g. to end a countdown or hide a notification.
+ * <p>
+ * The delay restarts when the component is detached and attached again.
+ *
+ * @param delay  Time until the action
+ * @param unit   Unit of the delay
+ * @param action Creates the action
+ */
+fun after(delay: Long, unit: TimeUnit, action: Supplier<out Action>): Sub {
+    return TimerSub(delay, 0, unit, Function<Instant, Action> { action.get() })
+}
+
+private class TimerSub(
+        private val delay: Long,
+        private val period: Long,
+        private val unit: TimeUnit,
+        private val tick: Function<Instant, out Action>) : Sub {
+
+    override fun start(inbox: Inbox): Registration {
+        val busy = AtomicBoolean(false)
+        return HashedWheelTimer.shared.schedule(delay, period, unit, Runnable {
+            if (busy.compareAndSet(false, true)) {
+                inbox.deliver(tick.apply(Instant.now()), Runnable { busy.set(false) })
+            }
+        })
+    }
+
+}
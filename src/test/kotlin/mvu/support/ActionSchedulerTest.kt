@@ -0,0 +1,117 @@
+package mvu.support
+
+import com.vaadin.ui.Label
+import io.mockk.verify
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+object ActionSchedulerSpec : Spek({
+
+    describe("The action scheduler of a session") {
+
+        data class Background(val name: String) : Action
+        data class User(val name: String) : HighPriorityAction
+
+        val testSession by memoized { TestSession() }
+        val processed by memoized { Collections.synchronizedList(ArrayList<String>()) }
+
+        fun context(onProcess: (Action) -> Unit = {}): ComponentContext<String> {
+            val binder = ModelBinder<String>()
+            binder.bean = "model"
+            val context = ComponentContext(testSession.session, binder, updateWithEffects2kt { _, model -> ModelAndCmd.of(model) }, emptyDispatcher())
+            context.bindTo(Label(), Dispatcher { action ->
+                processed.add(if (action is User) action.name else (action as Background).name)
+                onProcess(action)
+            }, emptyList())
+            return context
+        }
+
+        it("Should be shared by the session without being stored in it") {
+            assertSame(ActionScheduler.of(testSession.session), ActionScheduler.of(testSession.session))
+            verify(exactly = 0) { testSession.session.setAttribute(any<Class<*>>(), any()) }
+        }
+
+        it("Should drain all deliveries in one session access, the USER lane first") {
+            val first = context()
+            val second = context()
+
+            first.deliver(Background("b1"), Lane.BACKGROUND, null)
+            first.deliver(Background("b2"), Lane.BACKGROUND, null)
+            second.deliver(User("u1"), Lane.USER, null)
+
+            assertEquals(1, testSession.pendingAccesses)
+            testSession.runAccesses()
+            assertEquals(listOf("u1", "b1", "b2"), processed)
+        }
+
+        it("Should take turns between the components with waiting deliveries") {
+            val busy = context()
+            val quiet = context()
+
+            busy.deliver(Background("busy1"), Lane.BACKGROUND, null)
+            busy.deliver(Background("busy2"), Lane.BACKGROUND, null)
+            busy.deliver(Background("busy3"), Lane.BACKGROUND, null)
+            quiet.deliver(Background("quiet1"), Lane.BACKGROUND, null)
+            testSession.runAccesses()
+
+            assertEquals(listOf("busy1", "quiet1", "busy2", "busy3"), processed)
+        }
+
+        it("Should back off from the BACKGROUND lane while a request waits for the session") {
+            val requestWaiting = CountDownLatch(1)
+            val context = context { action ->
+                if (action == Background("b1")) {
+                    // A request comes in while the first background action is processed
+                    Thread {
+                        testSession.lock.lock()
+                        testSession.lock.unlock()
+                    }.start()
+                    while (!testSession.lock.hasQueuedThreads()) {
+                        Thread.sleep(1)
+                    }
+                    requestWaiting.countDown()
+                }
+            }
+            context.deliver(Background("b1"), Lane.BACKGROUND, null)
+            context.deliver(Background("b2"), Lane.BACKGROUND, null)
+
+            testSession.runAccesses()
+            assertTrue(requestWaiting.await(5, TimeUnit.SECONDS))
+            assertEquals(listOf("b1"), processed)
+
+            // The rest continues in a new access, after the request
+            testSession.awaitAccess()
+            testSession.runAccesses()
+            assertEquals(listOf("b1", "b2"), processed)
+        }
+
+        it("Should keep draining when an update fails") {
+            val failing = context { action ->
+                if (action == Background("b1")) {
+                    throw IllegalStateException("update failed")
+                }
+            }
+            val other = context()
+            failing.deliver(Background("b1"), Lane.BACKGROUND, null)
+            failing.deliver(Background("b2"), Lane.BACKGROUND, null)
+            other.deliver(Background("o1"), Lane.BACKGROUND, null)
+
+            testSession.runAccesses()
+            assertEquals(listOf("b1", "o1", "b2"), processed)
+
+            // The mailboxes are not stuck
+            failing.deliver(Background("b3"), Lane.BACKGROUND, null)
+            other.deliver(User("u1"), Lane.USER, null)
+            testSession.runAccesses()
+            assertEquals(listOf("b1", "o1", "b2", "u1", "b3"), processed)
+        }
+
+    }
+
+})
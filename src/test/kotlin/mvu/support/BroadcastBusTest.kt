@@ -0,0 +1,90 @@
+package mvu.support
+
+import com.vaadin.ui.Component
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.lang.ref.WeakReference
+import java.util.Collections
+import kotlin.test.assertEquals
+
+object BroadcastBusSpec : Spek({
+
+    describe("A broadcast bus") {
+
+        data class PersonAdded(val name: String) : Action
+        data class ConfigurationChanged(val key: String) : Action
+
+        val testSession by memoized { TestSession() }
+        val bus by memoized { BroadcastBus(1) }
+        val processed by memoized { Collections.synchronizedList(ArrayList<Action>()) }
+
+        fun join(vararg actionTypes: Class<out Action>, on: BroadcastBus = bus) = testSession.locked {
+            val binder = ModelBinder<String>()
+            binder.bean = "model"
+            val context = ComponentContext(testSession.session, binder, updateWithEffects2kt { _, model -> ModelAndCmd.of(model) }, emptyDispatcher())
+            val component = mockk<Component>(relaxed = true)
+            every { component.ui } returns testSession.ui
+            context.bindTo(component, Dispatcher { processed.add(it) }, emptyList())
+            on.subscription(*actionTypes).start(Inbox(WeakReference(context)))
+        }
+
+        it("Should deliver the actions through the mailboxes of the subscribed components") {
+            join()
+            join(PersonAdded::class.java)
+
+            bus.publish(PersonAdded("Robin"))
+            testSession.runAccessesUntil { processed.size == 2 }
+
+            assertEquals(listOf<Action>(PersonAdded("Robin"), PersonAdded("Robin")), processed)
+            verify(exactly = 0) { testSession.ui.access(any()) }
+            assertEquals(2L, bus.fanOutLatency.count)
+        }
+
+        it("Should only deliver the action types a component subscribed to") {
+            join(PersonAdded::class.java)
+
+            bus.publish(ConfigurationChanged("theme"))
+            bus.publish(PersonAdded("Alfred"))
+            testSession.runAccessesUntil { processed.isNotEmpty() }
+
+            assertEquals(listOf<Action>(PersonAdded("Alfred")), processed)
+        }
+
+        it("Should stop delivering once the subscription is removed") {
+            val registration = join()
+
+            registration.remove()
+            bus.publish(PersonAdded("Joker"))
+            Thread.sleep(100)
+            testSession.runAccesses()
+
+            assertEquals(emptyList<Action>(), processed)
+        }
+
+        it("Should keep delivering to a component which joins after the last one left") {
+            join().remove()
+            join()
+
+            bus.publish(PersonAdded("Robin"))
+            testSession.runAccessesUntil { processed.isNotEmpty() }
+
+            assertEquals(listOf<Action>(PersonAdded("Robin")), processed)
+        }
+
+        it("Should deliver the actions in the order they were published, also with several workers") {
+            val workersBus = BroadcastBus(4)
+            join(on = workersBus)
+
+            val published = (1..500).map { PersonAdded("person $it") }
+            published.forEach { workersBus.publish(it) }
+            testSession.runAccessesUntil { processed.size == published.size }
+
+            assertEquals(published, processed.toList())
+        }
+
+    }
+
+})
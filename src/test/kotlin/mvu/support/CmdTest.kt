@@ -0,0 +1,39 @@
+package mvu.support
+
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+object CmdSpec : Spek({
+
+    describe("Cmds") {
+
+        class Loading : Action
+
+        data class Load(val url: String) : AsyncAction<Action, Action, Action> {
+            override val startAction: Action
+                get() = Loading()
+
+            override fun <LEFTACTION, RIGHTACTION> perform(): AsyncActionResult<LEFTACTION, RIGHTACTION> {
+                throw UnsupportedOperationException("Not performed in this test")
+            }
+        }
+
+        it("Should have no effects for none") {
+            assertTrue(Cmd.none().isNone)
+            assertSame(expected = Cmd.none(), actual = Cmd.batch(Cmd.none(), Cmd.of()))
+        }
+
+        it("Should only keep identical async actions once when batching") {
+            val cmd = Cmd.batch(
+                    Cmd.of(Load("/heros"), Load("/villains")),
+                    Cmd.of(Load("/heros"))
+            )
+
+            assertEquals(expected = listOf<AsyncAction<*, *, *>>(Load("/heros"), Load("/villains")), actual = cmd.asyncActions.toList())
+        }
+    }
+
+})
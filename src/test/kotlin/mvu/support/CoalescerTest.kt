@@ -0,0 +1,97 @@
+package mvu.support
+
+import com.vaadin.server.SerializableConsumer
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.io.ByteArrayOutputStream
+import java.io.ObjectOutputStream
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+object CoalescerSpec : Spek({
+
+    describe("A coalescer") {
+
+        val passed by memoized { Collections.synchronizedList(ArrayList<Int>()) }
+
+        fun sink(done: CountDownLatch? = null) = SerializableConsumer<Int> { value ->
+            passed.add(value)
+            done?.countDown()
+        }
+
+        it("Should only pass on the latest value once the burst is over (DEBOUNCE)") {
+            val coalescer = Coalescer<Int>(CoalesceMode.DEBOUNCE, 200, TimeUnit.MILLISECONDS)
+            val done = CountDownLatch(1)
+
+            coalescer.offer(1, sink(done))
+            coalescer.offer(2, sink(done))
+            coalescer.offer(3, sink(done))
+            assertEquals(emptyList<Int>(), passed)
+
+            assertTrue(done.await(2, TimeUnit.SECONDS))
+            assertEquals(listOf(3), passed)
+        }
+
+        it("Should pass on the first value right away and the latest one at the end of the window (THROTTLE)") {
+            val coalescer = Coalescer<Int>(CoalesceMode.THROTTLE, 200, TimeUnit.MILLISECONDS)
+            val done = CountDownLatch(2)
+
+            coalescer.offer(1, sink(done))
+            coalescer.offer(2, sink(done))
+            coalescer.offer(3, sink(done))
+            assertEquals(listOf(1), passed)
+
+            assertTrue(done.await(2, TimeUnit.SECONDS))
+            assertEquals(listOf(1, 3), passed)
+        }
+
+        it("Should pass on the pending value when flushed, and only once") {
+            val coalescer = Coalescer<Int>(CoalesceMode.DEBOUNCE, 100, TimeUnit.MILLISECONDS)
+
+            coalescer.offer(1, sink())
+            coalescer.flush()
+            assertEquals(listOf(1), passed)
+
+            Thread.sleep(400)
+            assertEquals(listOf(1), passed)
+        }
+
+        it("Should be serializable while a value is pending") {
+            val coalescer = Coalescer<Int>(CoalesceMode.DEBOUNCE, 10, TimeUnit.SECONDS)
+            coalescer.offer(1, SerializableConsumer { })
+
+            ObjectOutputStream(ByteArrayOutputStream()).writeObject(coalescer)
+        }
+
+    }
+
+    describe("A rate limited render function") {
+
+        it("Should be the render function itself without a limit") {
+            val render = SerializableConsumer<Int> { }
+
+            assertSame(render, Coalescer.rateLimited(render, 0))
+        }
+
+        it("Should render the first value right away and the latest one at the end of the window") {
+            val rendered = Collections.synchronizedList(ArrayList<Int>())
+            val done = CountDownLatch(2)
+            val render = Coalescer.rateLimited(SerializableConsumer<Int> { value ->
+                rendered.add(value)
+                done.countDown()
+            }, 5)
+
+            (1..10).forEach { render.accept(it) }
+            assertEquals(listOf(1), rendered)
+
+            assertTrue(done.await(2, TimeUnit.SECONDS))
+            assertEquals(listOf(1, 10), rendered)
+        }
+
+    }
+
+})
@@ -0,0 +1,60 @@
+package mvu.support
+
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+object HashedWheelTimerSpec : Spek({
+
+    describe("A hashed wheel timer") {
+
+        val timer = HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8, Executor { it.run() })
+
+        it("Should run a timeout after its delay") {
+            val fired = CountDownLatch(1)
+            val start = System.nanoTime()
+            timer.schedule(50, 0, TimeUnit.MILLISECONDS, Runnable { fired.countDown() })
+
+            assertTrue(fired.await(2, TimeUnit.SECONDS))
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50))
+        }
+
+        it("Should run a timeout beyond one revolution of the wheel") {
+            val fired = CountDownLatch(1)
+            timer.schedule(200, 0, TimeUnit.MILLISECONDS, Runnable { fired.countDown() })
+
+            assertTrue(fired.await(2, TimeUnit.SECONDS))
+        }
+
+        it("Should repeat a periodic timeout until it is removed") {
+            val ticks = AtomicInteger()
+            val threeTicks = CountDownLatch(3)
+            val registration = timer.schedule(20, 20, TimeUnit.MILLISECONDS, Runnable {
+                ticks.incrementAndGet()
+                threeTicks.countDown()
+            })
+
+            assertTrue(threeTicks.await(2, TimeUnit.SECONDS))
+            registration.remove()
+            val ticksAfterRemove = ticks.get()
+            Thread.sleep(200)
+            // At most one tick which was already firing while removing
+            assertTrue(ticks.get() <= ticksAfterRemove + 1)
+        }
+
+        it("Should not run a removed timeout") {
+            val ticks = AtomicInteger()
+            val registration = timer.schedule(50, 0, TimeUnit.MILLISECONDS, Runnable { ticks.incrementAndGet() })
+            registration.remove()
+            Thread.sleep(200)
+
+            assertEquals(expected = 0, actual = ticks.get())
+        }
+    }
+
+})
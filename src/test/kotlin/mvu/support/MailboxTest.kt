@@ -0,0 +1,136 @@
+package mvu.support
+
+import com.vaadin.server.ClientConnector
+import com.vaadin.ui.Label
+import io.mockk.mockk
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+object MailboxSpec : Spek({
+
+    describe("A bounded mailbox") {
+
+        val context = mockk<ComponentContext<Int>>()
+
+        class Tick(val value: Int) : Action
+        class Other : Action
+
+        fun delivery(action: Action) = Delivery(context, action, Lane.BACKGROUND, null)
+
+        fun drain(mailbox: Mailbox): List<Action> {
+            val actions = mutableListOf<Action>()
+            var more = true
+            while (more) {
+                more = false
+                mailbox.take(Lane.BACKGROUND) { more = true }?.let { actions.add(it.action) }
+            }
+            return actions
+        }
+
+        it("Should only ask to be scheduled for the first waiting delivery") {
+            val mailbox = Mailbox(10, OverflowPolicy.DROP_OLDEST, MailboxMetrics())
+
+            assertTrue(mailbox.offer(delivery(Tick(1)), true).schedule)
+            assertFalse(mailbox.offer(delivery(Tick(2)), true).schedule)
+            assertEquals(2, drain(mailbox).size)
+            assertTrue(mailbox.offer(delivery(Tick(3)), true).schedule)
+        }
+
+        it("Should drop the oldest delivery and keep track of the high water mark") {
+            val metrics = MailboxMetrics()
+            val mailbox = Mailbox(2, OverflowPolicy.DROP_OLDEST, metrics)
+            val first = delivery(Tick(1))
+
+            mailbox.offer(first, true)
+            mailbox.offer(delivery(Tick(2)), true)
+            val offer = mailbox.offer(delivery(Tick(3)), true)
+
+            assertSame(first, offer.dropped)
+            assertEquals(listOf(2, 3), drain(mailbox).map { (it as Tick).value })
+            assertEquals(2, metrics.highWaterMark)
+            assertEquals(1L, metrics.dropped)
+        }
+
+        it("Should drop the newest delivery") {
+            val mailbox = Mailbox(1, OverflowPolicy.DROP_NEWEST, MailboxMetrics())
+            val second = delivery(Tick(2))
+
+            mailbox.offer(delivery(Tick(1)), true)
+
+            assertSame(second, mailbox.offer(second, true).dropped)
+            assertEquals(listOf(1), drain(mailbox).map { (it as Tick).value })
+        }
+
+        it("Should conflate deliveries of the same type") {
+            val metrics = MailboxMetrics()
+            val mailbox = Mailbox(2, OverflowPolicy.CONFLATE, metrics)
+            val other = Other()
+
+            mailbox.offer(delivery(Tick(1)), true)
+            mailbox.offer(delivery(other), true)
+            mailbox.offer(delivery(Tick(2)), true)
+
+            val actions = drain(mailbox)
+            assertSame(other, actions[0])
+            assertEquals(2, (actions[1] as Tick).value)
+            assertEquals(1L, metrics.conflated)
+        }
+
+        it("Should refuse deliveries once closed") {
+            val mailbox = Mailbox(10, OverflowPolicy.BLOCK, MailboxMetrics())
+
+            mailbox.offer(delivery(Tick(1)), true)
+            mailbox.close()
+
+            assertNull(mailbox.take(Lane.BACKGROUND) {})
+            assertEquals(0, mailbox.size)
+            assertFalse(mailbox.offer(delivery(Tick(2)), true).schedule)
+        }
+
+    }
+
+    describe("The mailbox of a component") {
+
+        class Tick(val value: Int) : Action
+
+        it("Should accept deliveries again once the component is attached again") {
+            val testSession = TestSession()
+            val binder = ModelBinder<Int>()
+            binder.bean = 0
+            val context = ComponentContext(testSession.session, binder, updateWithEffects2kt { _, model -> ModelAndCmd.of(model) }, emptyDispatcher())
+            val component = LifecycleLabel()
+            val processed = mutableListOf<Int>()
+            context.bindTo(component, Dispatcher { processed.add((it as Tick).value) }, emptyList())
+
+            component.simulateAttach()
+            context.deliver(Tick(1), Lane.BACKGROUND, null)
+            component.simulateDetach()
+            context.deliver(Tick(2), Lane.BACKGROUND, null)
+            component.simulateAttach()
+            context.deliver(Tick(3), Lane.BACKGROUND, null)
+            testSession.runAccesses()
+
+            assertEquals(listOf(3), processed)
+        }
+
+    }
+
+})
+
+/**
+ * Label which can fire attach and detach events without being part of a real UI.
+ */
+private class LifecycleLabel : Label() {
+    fun simulateAttach() {
+        fireEvent(ClientConnector.AttachEvent(this))
+    }
+
+    fun simulateDetach() {
+        fireEvent(ClientConnector.DetachEvent(this))
+    }
+}
@@ -0,0 +1,72 @@
+package mvu.support
+
+import com.vaadin.data.ValueProvider
+import com.vaadin.server.SerializableConsumer
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import kotlin.test.assertEquals
+
+object ModelBinderSpec : Spek({
+
+    describe("A read-only binding") {
+
+        data class Model(val ticker: Int, val status: String)
+
+        it("Should render the current model immediately") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(1, "Loaded")
+
+            val rendered = ArrayList<Int>()
+            binder.bindReadOnly(ValueProvider { model: Model -> model.ticker }, SerializableConsumer { ticker: Int -> rendered.add(ticker) })
+
+            assertEquals(expected = listOf(1), actual = rendered)
+        }
+
+        it("Should only render values which changed") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(1, "Loading...")
+
+            val rendered = ArrayList<Int>()
+            binder.bindReadOnly(ValueProvider { model: Model -> model.ticker }, SerializableConsumer { ticker: Int -> rendered.add(ticker) })
+
+            binder.bean = Model(1, "Loaded")
+            binder.bean = Model(2, "Loaded")
+
+            assertEquals(expected = listOf(1, 2), actual = rendered)
+        }
+
+        it("Should stop rendering once the binding is removed") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(1, "Loaded")
+
+            val rendered = ArrayList<Int>()
+            val registration = binder.bindReadOnly(ValueProvider { model: Model -> model.ticker }, SerializableConsumer { ticker: Int -> rendered.add(ticker) })
+            registration.remove()
+
+            binder.bean = Model(2, "Loaded")
+
+            assertEquals(expected = listOf(1), actual = rendered)
+        }
+    }
+
+    describe("A memoized slice") {
+
+        data class Totals(val count: Int)
+        data class Model(val totals: Totals, val status: String)
+
+        it("Should only refresh its bindings when the slice changed") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(Totals(1), "Loading...")
+
+            val rendered = ArrayList<Int>()
+            val totalsBinder = binder.memo(ValueProvider { model: Model -> model.totals })
+            totalsBinder.bindReadOnly(ValueProvider { totals: Totals -> totals.count }, SerializableConsumer { count: Int -> rendered.add(count) })
+
+            binder.bean = Model(Totals(1), "Loaded")
+            binder.bean = Model(Totals(2), "Loaded")
+
+            assertEquals(expected = listOf(1, 2), actual = rendered)
+        }
+    }
+
+})
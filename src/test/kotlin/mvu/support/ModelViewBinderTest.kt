@@ -1,6 +1,7 @@
 package mvu.support
 
 import com.vaadin.data.Binder
+import com.vaadin.server.ClientConnector
 import com.vaadin.server.VaadinSession
 import com.vaadin.shared.communication.PushMode
 import com.vaadin.ui.Button
@@ -12,8 +13,13 @@ import io.mockk.mockk
 import mvu.support.extra.DispatchButton
 import org.spekframework.spek2.Spek
 import org.spekframework.spek2.style.specification.describe
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertFailsWith
 import kotlin.test.assertNotNull
+import kotlin.test.assertTrue
 
 object ModelViewBinderSpec : Spek({
     group("default group") {
@@ -27,6 +33,8 @@ object ModelViewBinderSpec : Spek({
         val vaadinSessionMock = mockk<VaadinSession>()
         every { vaadinSessionMock.uIs } answers { listOf(vaadinUIMock) }
         VaadinSession.setCurrent(vaadinSessionMock)
+        // Tests may run on another thread than the discovery
+        beforeEachTest { VaadinSession.setCurrent(vaadinSessionMock) }
 
         describe("A dummy Model View Update") {
 
@@ -141,8 +149,192 @@ object ModelViewBinderSpec : Spek({
                 }
             }
 
+            describe("A detached component") {
+                val detachableButton = DetachableButton()
+                val detachableView: ViewKt<Model> = { viewBinder: Binder<Model>, dispatcher: Dispatcher ->
+                    binder = viewBinder
+                    DispatchButton.builder(detachableButton, dispatcher)
+                            .withAction { IncAction() }
+                            .withCaption("+1")
+                            .build()
+                }
+
+                it("Should ignore actions once it is removed from the UI") {
+                    bindModelAndViewKt(initialModel, detachableView, update)
+                    detachableButton.click()
+                    assertEquals(expected = 1, actual = binder?.bean?.value)
+
+                    detachableButton.simulateDetach()
+                    detachableButton.click()
+                    assertEquals(expected = 1, actual = binder?.bean?.value)
+                }
+            }
+
+        }
+
+    }
+
+    describe("An update with Cmds") {
+
+        data class Model(val loaded: List<String> = emptyList())
+        class LoadAll : Action
+        class Loading : Action
+        data class Loaded(val name: String) : Action
+        data class Load(val name: String) : AsyncAction<Action, Action, Action> {
+            override val startAction: Action
+                get() = Loading()
+
+            override fun <LEFTACTION, RIGHTACTION> perform(): AsyncActionResult<LEFTACTION, RIGHTACTION> {
+                @Suppress("UNCHECKED_CAST")
+                return fromRight(Loaded(name) as RIGHTACTION)
+            }
+        }
+
+        val update = { action: Action, model: Model ->
+            when (action) {
+                is LoadAll -> ModelAndCmd.of(model, Cmd.batch(Cmd.of(Load("heros")), Cmd.of(Load("villains"))))
+                is Loaded -> ModelAndCmd.of(model.copy(loaded = (model.loaded + action.name).sorted()))
+                else -> ModelAndCmd.of(model)
+            }
+        }
+
+        fun bind(testSession: TestSession): Pair<Binder<Model>, Dispatcher> {
+            var binder: Binder<Model>? = null
+            var dispatcher: Dispatcher? = null
+            testSession.locked {
+                bindModelAndViewWithEffectsKt(emptyDispatcher(), Model(), { viewBinder: Binder<Model>, viewDispatcher: Dispatcher ->
+                    binder = viewBinder
+                    dispatcher = viewDispatcher
+                    HorizontalLayout()
+                }, update)
+            }
+            return Pair(binder!!, dispatcher!!)
+        }
+
+        it("Should perform every Cmd of a batch and dispatch their results") {
+            val testSession = TestSession()
+            val (binder, dispatcher) = bind(testSession)
+
+            testSession.locked { dispatcher.dispatcher(LoadAll()) }
+            testSession.runAccessesUntil { binder.bean.loaded.size == 2 }
+
+            assertEquals(expected = listOf("heros", "villains"), actual = binder.bean.loaded)
+        }
+
+        it("Should perform the Cmds once Push is enabled after it was found disabled") {
+            val testSession = TestSession(PushMode.DISABLED)
+            val (binder, dispatcher) = bind(testSession)
+
+            assertFailsWith<RuntimeException> { testSession.locked { dispatcher.dispatcher(LoadAll()) } }
+            every { testSession.ui.pushConfiguration.pushMode } returns PushMode.AUTOMATIC
+            testSession.locked { dispatcher.dispatcher(LoadAll()) }
+            testSession.runAccessesUntil { binder.bean.loaded.size == 2 }
+
+            assertEquals(expected = listOf("heros", "villains"), actual = binder.bean.loaded)
+        }
+
+    }
+
+    describe("A superseding async action") {
+
+        data class Model(val found: List<String> = emptyList())
+        data class Found(val query: String) : Action
+        class Search(private val key: String, private val query: String, private val blocking: Boolean = false) : SupersedingAsyncAction<Action?, Action, Action> {
+            val started = CountDownLatch(1)
+            val interrupted = CountDownLatch(1)
+
+            override val supersedeKey: Any
+                get() = key
+
+            override val startAction: Action?
+                get() = null
+
+            override fun <LEFTACTION, RIGHTACTION> perform(): AsyncActionResult<LEFTACTION, RIGHTACTION> {
+                if (blocking) {
+                    started.countDown()
+                    try {
+                        Thread.sleep(60_000)
+                    } catch (e: InterruptedException) {
+                        interrupted.countDown()
+                        throw e
+                    }
+                }
+                @Suppress("UNCHECKED_CAST")
+                return fromRight(Found(query) as RIGHTACTION)
+            }
+        }
+
+        val seen = ArrayList<Action>()
+        val update = { action: Action, model: Model ->
+            seen.add(action)
+            if (action is Found) model.copy(found = model.found + action.query) else model
+        }
+
+        fun bind(testSession: TestSession): Pair<Binder<Model>, Dispatcher> {
+            var binder: Binder<Model>? = null
+            var dispatcher: Dispatcher? = null
+            testSession.locked {
+                bindModelAndViewKt(emptyDispatcher(), Model(), { viewBinder: Binder<Model>, viewDispatcher: Dispatcher ->
+                    binder = viewBinder
+                    dispatcher = viewDispatcher
+                    HorizontalLayout()
+                }, update)
+            }
+            return Pair(binder!!, dispatcher!!)
+        }
+
+        beforeEachTest { seen.clear() }
+
+        it("Should cancel the running one with the same key and only dispatch the latest result") {
+            val testSession = TestSession()
+            val (binder, dispatcher) = bind(testSession)
+            val first = Search("search", "bat", blocking = true)
+
+            testSession.locked { dispatcher.dispatcher(first) }
+            assertTrue(first.started.await(5, TimeUnit.SECONDS))
+            testSession.locked { dispatcher.dispatcher(Search("search", "batman")) }
+            testSession.runAccessesUntil { binder.bean.found.isNotEmpty() }
+
+            assertTrue(first.interrupted.await(5, TimeUnit.SECONDS))
+            testSession.runAccesses()
+            assertEquals(expected = listOf("batman"), actual = binder.bean.found)
+        }
+
+        it("Should leave the running one with another key alone") {
+            val testSession = TestSession()
+            val (binder, dispatcher) = bind(testSession)
+
+            testSession.locked { dispatcher.dispatcher(Search("heros", "batman")) }
+            testSession.locked { dispatcher.dispatcher(Search("villains", "joker")) }
+            testSession.runAccessesUntil { binder.bean.found.size == 2 }
+
+            assertEquals(expected = listOf("batman", "joker"), actual = binder.bean.found.sorted())
+        }
+
+        it("Should cancel the running one on a CancelSuperseded, which never reaches the update") {
+            val testSession = TestSession()
+            val (binder, dispatcher) = bind(testSession)
+            val search = Search("search", "bat", blocking = true)
+
+            testSession.locked { dispatcher.dispatcher(search) }
+            assertTrue(search.started.await(5, TimeUnit.SECONDS))
+            testSession.locked { dispatcher.dispatcher(CancelSuperseded("search")) }
+
+            assertTrue(search.interrupted.await(5, TimeUnit.SECONDS))
+            testSession.runAccesses()
+            assertEquals(expected = emptyList<String>(), actual = binder.bean.found)
+            assertFalse(seen.any { it is CancelSuperseded })
         }
 
     }
 
-})
\ No newline at end of file
+})
+
+/**
+ * Button which can fire a detach event without being part of a real UI.
+ */
+private class DetachableButton : Button() {
+    fun simulateDetach() {
+        fireEvent(ClientConnector.DetachEvent(this))
+    }
+}
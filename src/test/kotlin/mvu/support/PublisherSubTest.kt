@@ -0,0 +1,118 @@
+package mvu.support
+
+import com.vaadin.ui.Label
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.lang.ref.WeakReference
+import java.util.concurrent.Flow
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+object PublisherSubSpec : Spek({
+
+    describe("A publisher subscription") {
+
+        data class Tick(val value: Int) : Action
+
+        val testSession by memoized { TestSession() }
+        val publisher by memoized { TestPublisher() }
+        val processed by memoized { mutableListOf<Int>() }
+
+        fun subscribe(strategy: BackpressureStrategy) = testSession.locked {
+            val binder = ModelBinder<Int>()
+            binder.bean = 0
+            val context = ComponentContext(testSession.session, binder, updateWithEffects2kt { _, model -> ModelAndCmd.of(model) }, emptyDispatcher())
+            context.bindTo(Label(), Dispatcher { processed.add((it as Tick).value) }, emptyList())
+            fromPublisher(publisher, strategy).start(Inbox(WeakReference(context)))
+        }
+
+        it("Should only request the next action once the previous one is processed (REQUEST)") {
+            subscribe(BackpressureStrategy.REQUEST)
+            assertEquals(1L, publisher.requested)
+
+            publisher.publish(Tick(1))
+            assertEquals(1L, publisher.requested)
+
+            testSession.runAccesses()
+            assertEquals(listOf(1), processed)
+            assertEquals(2L, publisher.requested)
+        }
+
+        it("Should only keep the latest action while the UI is busy (CONFLATE)") {
+            subscribe(BackpressureStrategy.CONFLATE)
+
+            publisher.publish(Tick(1))
+            publisher.publish(Tick(2))
+            publisher.publish(Tick(3))
+            testSession.runAccesses()
+
+            assertEquals(listOf(1, 3), processed)
+        }
+
+        it("Should drop the actions arriving while the UI is busy (DROP)") {
+            subscribe(BackpressureStrategy.DROP)
+
+            publisher.publish(Tick(1))
+            publisher.publish(Tick(2))
+            testSession.runAccesses()
+            publisher.publish(Tick(3))
+            testSession.runAccesses()
+
+            assertEquals(listOf(1, 3), processed)
+        }
+
+        it("Should cancel the subscription when it is removed") {
+            val registration = subscribe(BackpressureStrategy.REQUEST)
+
+            registration.remove()
+            publisher.publish(Tick(1))
+            testSession.runAccesses()
+
+            assertTrue(publisher.cancelled)
+            assertEquals(emptyList<Int>(), processed)
+        }
+
+        it("Should let go of the subscription once the publisher completes") {
+            val registration = subscribe(BackpressureStrategy.REQUEST)
+
+            publisher.complete()
+            registration.remove()
+
+            assertFalse(publisher.cancelled)
+        }
+
+    }
+
+})
+
+/**
+ * Publisher of which the test decides when it publishes, keeping track of the demand of its subscriber.
+ */
+private class TestPublisher : Flow.Publisher<Action> {
+
+    private lateinit var subscriber: Flow.Subscriber<in Action>
+
+    @Volatile
+    var requested = 0L
+    @Volatile
+    var cancelled = false
+
+    override fun subscribe(subscriber: Flow.Subscriber<in Action>) {
+        this.subscriber = subscriber
+        subscriber.onSubscribe(object : Flow.Subscription {
+            override fun request(n: Long) {
+                requested = if (Long.MAX_VALUE - requested < n) Long.MAX_VALUE else requested + n
+            }
+
+            override fun cancel() {
+                cancelled = true
+            }
+        })
+    }
+
+    fun publish(action: Action) = subscriber.onNext(action)
+
+    fun complete() = subscriber.onComplete()
+
+}
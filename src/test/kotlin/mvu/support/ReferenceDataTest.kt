@@ -0,0 +1,36 @@
+package mvu.support
+
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.util.function.UnaryOperator
+import kotlin.test.assertEquals
+import kotlin.test.assertNotEquals
+
+object ReferenceDataSpec : Spek({
+
+    describe("Reference data") {
+
+        it("Should create a new version on every update") {
+            val heros = ReferenceData(listOf("Batman"))
+            val first = heros.snapshot()
+
+            val second = heros.update(UnaryOperator { it + "Robin" })
+
+            assertEquals(expected = 0L, actual = first.version)
+            assertEquals(expected = 1L, actual = second.version)
+            assertEquals(expected = second, actual = heros.snapshot())
+            assertNotEquals(illegal = first, actual = second)
+        }
+
+        it("Should never change an existing snapshot") {
+            val heros = ReferenceData(listOf("Batman"))
+            val first = heros.snapshot()
+
+            heros.set(listOf("Robin"))
+
+            assertEquals(expected = listOf("Batman"), actual = first.value)
+            assertEquals(expected = listOf("Robin"), actual = heros.snapshot().value)
+        }
+    }
+
+})
@@ -0,0 +1,129 @@
+package mvu.support
+
+import com.vaadin.server.ClientConnector
+import com.vaadin.server.SessionDestroyEvent
+import com.vaadin.server.SessionDestroyListener
+import com.vaadin.server.VaadinService
+import com.vaadin.ui.UI
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.slot
+import io.mockk.verify
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Job
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+object ResourcesSpec : Spek({
+
+    describe("Resources") {
+
+        it("Should share an application executor by name") {
+            val executor = Resources.executor(ResourceScope.APPLICATION, "test", 1)
+
+            assertSame(executor, Resources.executor(ResourceScope.APPLICATION, "test", 4))
+        }
+
+        it("Should close the resources of a scope in reverse order and refuse new ones afterwards") {
+            val registry = ResourceRegistry("test")
+            val closed = mutableListOf<String>()
+            registry.getOrCreate("first", { "first" }, { closed.add(it) })
+            registry.getOrCreate("second", { "second" }, { closed.add(it) })
+            registry.getOrCreate("first", { "other" }, { closed.add(it) })
+
+            registry.close()
+
+            assertEquals(listOf("second", "first"), closed)
+            assertFailsWith<IllegalStateException> { registry.getOrCreate("third", { "third" }, { closed.add(it) }) }
+        }
+
+    }
+
+    describe("Session and UI resources") {
+
+        val testSession = TestSession()
+        val service = mockk<VaadinService>(relaxed = true)
+        val sessionDestroyListener = slot<SessionDestroyListener>()
+        every { service.addSessionDestroyListener(capture(sessionDestroyListener)) } returns mockk(relaxed = true)
+        every { testSession.session.service } returns service
+
+        fun uiExecutor(name: String, ui: UI = testSession.ui) = testSession.locked {
+            UI.setCurrent(ui)
+            try {
+                Resources.executor(ResourceScope.UI, name, 1)
+            } finally {
+                UI.setCurrent(null)
+            }
+        }
+
+        fun sessionExecutor(name: String) = testSession.locked { Resources.executor(ResourceScope.SESSION, name, 1) }
+
+        it("Should not be stored in the session") {
+            sessionExecutor("attributes")
+
+            verify(exactly = 0) { testSession.session.setAttribute(any<Class<*>>(), any()) }
+            verify(exactly = 0) { testSession.session.setAttribute(any<String>(), any()) }
+        }
+
+        it("Should close the UI resources when the UI is detached, and refuse new ones") {
+            val ui = mockk<UI>(relaxed = true)
+            every { ui.session } returns testSession.session
+            val detachListener = slot<ClientConnector.DetachListener>()
+            every { ui.addDetachListener(capture(detachListener)) } returns mockk(relaxed = true)
+            val executor = uiExecutor("detach", ui)
+            assertSame(executor, uiExecutor("detach", ui))
+
+            testSession.locked { detachListener.captured.detach(ClientConnector.DetachEvent(ui)) }
+
+            assertTrue(executor.isShutdown)
+            assertFailsWith<IllegalStateException> { uiExecutor("detach", ui) }
+            assertTrue(testSession.locked { Resources.parentJob(testSession.session, ui) }.isCancelled)
+        }
+
+        it("Should close the session and UI resources when the session is destroyed") {
+            val sessionExecutor = sessionExecutor("destroy")
+            val uiExecutor = uiExecutor("destroy")
+
+            sessionDestroyListener.captured.sessionDestroy(SessionDestroyEvent(service, testSession.session))
+
+            assertTrue(sessionExecutor.isShutdown)
+            assertTrue(uiExecutor.isShutdown)
+            assertTrue(testSession.locked { Resources.parentJob(testSession.session, null) }.isCancelled)
+            assertTrue(testSession.locked { Resources.parentJob(testSession.session, mockk(relaxed = true)) }.isCancelled)
+        }
+
+    }
+
+    describe("Blocking work") {
+
+        it("Should be interrupted when its job is cancelled") {
+            val job = Job()
+            val started = CountDownLatch(1)
+            val cancelled = CountDownLatch(1)
+            val worker = Thread {
+                try {
+                    BlockingWork.run(job) {
+                        started.countDown()
+                        Thread.sleep(10_000)
+                    }
+                } catch (e: CancellationException) {
+                    cancelled.countDown()
+                }
+            }
+            worker.start()
+            started.await()
+
+            BlockingWork.cancel(job)
+
+            assertTrue(cancelled.await(5, TimeUnit.SECONDS))
+        }
+
+    }
+
+})
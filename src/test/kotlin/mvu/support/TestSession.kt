@@ -0,0 +1,95 @@
+package mvu.support
+
+import com.vaadin.server.VaadinSession
+import com.vaadin.shared.communication.PushMode
+import com.vaadin.ui.PushConfiguration
+import com.vaadin.ui.UI
+import io.mockk.every
+import io.mockk.mockk
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+
+/**
+ * A mocked session with one UI, of which the accesses (session.access) wait until the test runs them with
+ * #runAccesses, so the test decides when the "UI thread" gets the session lock.
+ */
+internal class TestSession(pushMode: PushMode = PushMode.AUTOMATIC) {
+
+    val ui = mockk<UI>(relaxed = true)
+    val session = mockk<VaadinSession>(relaxed = true)
+    val lock = ReentrantLock()
+
+    private val accesses = ConcurrentLinkedQueue<Runnable>()
+
+    init {
+        val pushConfiguration = mockk<PushConfiguration>()
+        every { pushConfiguration.pushMode } returns pushMode
+        every { ui.pushConfiguration } returns pushConfiguration
+        every { ui.session } returns session
+        every { session.getUIs() } returns listOf(ui)
+        every { session.lockInstance } returns lock
+        every { session.hasLock() } answers { lock.isHeldByCurrentThread }
+        every { session.access(any()) } answers {
+            accesses.add(firstArg())
+            CompletableFuture.completedFuture<Void>(null)
+        }
+        every { session.accessSynchronously(any()) } answers { locked { firstArg<Runnable>().run() } }
+    }
+
+    val pendingAccesses: Int
+        get() = accesses.size
+
+    /**
+     * Run the waiting accesses (also the ones they add) under the lock.
+     */
+    fun runAccesses() {
+        while (true) {
+            val access = accesses.poll() ?: return
+            locked { access.run() }
+        }
+    }
+
+    /**
+     * Run the accesses (also the ones other threads ask for meanwhile) until the condition holds.
+     */
+    fun runAccessesUntil(timeoutMillis: Long = 5_000, condition: () -> Boolean) {
+        val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+        while (true) {
+            runAccesses()
+            if (condition()) {
+                return
+            }
+            if (System.nanoTime() > deadline) {
+                throw AssertionError("Condition not met within $timeoutMillis ms")
+            }
+            Thread.sleep(5)
+        }
+    }
+
+    /**
+     * Wait until another thread asked for an access.
+     */
+    fun awaitAccess(timeoutMillis: Long = 5_000) {
+        val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+        while (accesses.isEmpty()) {
+            if (System.nanoTime() > deadline) {
+                throw AssertionError("No session access within $timeoutMillis ms")
+            }
+            Thread.sleep(5)
+        }
+    }
+
+    fun <T> locked(block: () -> T): T {
+        lock.lock()
+        try {
+            VaadinSession.setCurrent(session)
+            return block()
+        } finally {
+            VaadinSession.setCurrent(null)
+            lock.unlock()
+        }
+    }
+
+}
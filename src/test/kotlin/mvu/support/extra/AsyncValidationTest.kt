@@ -0,0 +1,126 @@
+package mvu.support.extra
+
+import com.vaadin.data.Binder
+import com.vaadin.data.ValidationResult
+import com.vaadin.ui.HorizontalLayout
+import mvu.support.Action
+import mvu.support.Dispatcher
+import mvu.support.TestSession
+import mvu.support.bindModelAndViewKt
+import mvu.support.emptyDispatcher
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.function.Function
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+object AsyncValidationSpec : Spek({
+
+    describe("An async validation") {
+
+        data class Model(val states: List<Pair<String, ValidationState.Status>> = emptyList())
+        data class StatusChanged(val state: ValidationState<String>) : Action
+
+        val update = { action: Action, model: Model ->
+            if (action is StatusChanged) model.copy(states = model.states + Pair(action.state.value, action.state.status)) else model
+        }
+
+        class Field(val testSession: TestSession, validator: AsyncValidator<String>) {
+            val checked: MutableList<String> = Collections.synchronizedList(ArrayList())
+            var binder: Binder<Model>? = null
+            var validation: AsyncValidation<String>? = null
+
+            init {
+                val countingValidator = AsyncValidator<String> { value ->
+                    checked.add(value)
+                    validator.validate(value)
+                }
+                testSession.locked {
+                    bindModelAndViewKt(emptyDispatcher(), Model(), { viewBinder: Binder<Model>, viewDispatcher: Dispatcher ->
+                        binder = viewBinder
+                        validation = AsyncValidation(countingValidator, 50, Function<ValidationState<String>, Action> { state -> StatusChanged(state) }, viewDispatcher)
+                        HorizontalLayout()
+                    }, update)
+                }
+            }
+
+            val states: List<Pair<String, ValidationState.Status>>
+                get() = binder!!.bean.states
+
+            fun type(value: String) {
+                testSession.locked { validation!!.validate(value) }
+            }
+
+            fun awaitState(value: String, status: ValidationState.Status) {
+                testSession.runAccessesUntil { states.lastOrNull() == Pair(value, status) }
+            }
+        }
+
+        val available = AsyncValidator<String> { value ->
+            if (value == "joker") ValidationResult.error("Taken") else ValidationResult.ok()
+        }
+
+        it("Should only check the latest value once the user stopped typing, and report PENDING once per value") {
+            val field = Field(TestSession(), available)
+
+            field.type("b")
+            field.type("ba")
+            field.type("bat")
+            field.awaitState("bat", ValidationState.Status.VALID)
+
+            assertEquals(listOf("bat"), field.checked)
+            assertEquals(listOf(
+                    Pair("b", ValidationState.Status.PENDING),
+                    Pair("ba", ValidationState.Status.PENDING),
+                    Pair("bat", ValidationState.Status.PENDING),
+                    Pair("bat", ValidationState.Status.VALID)), field.states)
+        }
+
+        it("Should report a cached result right away, without checking again") {
+            val field = Field(TestSession(), available)
+            field.type("joker")
+            field.awaitState("joker", ValidationState.Status.INVALID)
+            field.type("bat")
+            field.awaitState("bat", ValidationState.Status.VALID)
+
+            field.type("joker")
+
+            assertEquals(Pair("joker", ValidationState.Status.INVALID), field.states.last())
+            assertEquals(0, field.testSession.pendingAccesses)
+            assertEquals(listOf("joker", "bat"), field.checked)
+        }
+
+        it("Should cancel the running check of an older value when the result of the new one is cached") {
+            val started = CountDownLatch(1)
+            val interrupted = CountDownLatch(1)
+            val field = Field(TestSession(), AsyncValidator<String> { value ->
+                if (value == "slow") {
+                    started.countDown()
+                    try {
+                        Thread.sleep(60_000)
+                    } catch (e: InterruptedException) {
+                        interrupted.countDown()
+                        throw e
+                    }
+                }
+                ValidationResult.ok()
+            })
+            field.type("bat")
+            field.awaitState("bat", ValidationState.Status.VALID)
+            field.type("slow")
+            field.testSession.runAccessesUntil { started.count == 0L }
+
+            field.type("bat")
+
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS))
+            field.testSession.runAccesses()
+            assertEquals(Pair("bat", ValidationState.Status.VALID), field.states.last())
+            assertEquals(listOf("bat", "slow"), field.checked)
+        }
+
+    }
+
+})
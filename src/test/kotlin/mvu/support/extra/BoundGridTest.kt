@@ -0,0 +1,119 @@
+package mvu.support.extra
+
+import com.vaadin.data.provider.DataChangeEvent
+import com.vaadin.ui.Grid
+import mvu.support.ModelBinder
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.io.ByteArrayOutputStream
+import java.io.ObjectOutputStream
+import java.io.Serializable
+import java.util.Comparator
+import java.util.function.Predicate
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+object BoundGridSpec : Spek({
+
+    describe("A diffing bound grid") {
+
+        data class Hero(val id: Int, val name: String)
+        data class Model(val heros: List<Hero?>)
+
+        fun boundGrid(binder: ModelBinder<Model>, keyed: Boolean): Grid<Hero> {
+            val builder = BoundGrid.builder(binder, Hero::class.java)
+                    .withValueProvider { model -> model.heros }
+                    .withReadOnlyBinding()
+            return (if (keyed) builder.withKey { hero -> hero.id } else builder.withDiffing()).build()
+        }
+
+        /**
+         * The refreshes of the rows (refreshItem), "*" for a refresh of everything (refreshAll).
+         */
+        fun refreshes(grid: Grid<Hero>): MutableList<String> {
+            val refreshes = ArrayList<String>()
+            grid.dataProvider.addDataProviderListener { event ->
+                refreshes.add(if (event is DataChangeEvent.DataRefreshEvent) (event.item as Hero).name else "*")
+            }
+            return refreshes
+        }
+
+        it("Should only refresh the changed row of a key") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(listOf(Hero(1, "Batman"), Hero(2, "Robin")))
+            val grid = boundGrid(binder, keyed = true)
+            val refreshes = refreshes(grid)
+
+            binder.bean = Model(listOf(Hero(1, "Batman"), Hero(2, "Nightwing")))
+
+            assertEquals(expected = listOf("Nightwing"), actual = refreshes)
+        }
+
+        it("Should refresh everything when rows are inserted or moved") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(listOf(Hero(1, "Batman"), Hero(2, "Robin")))
+            val grid = boundGrid(binder, keyed = true)
+            val refreshes = refreshes(grid)
+
+            binder.bean = Model(listOf(Hero(2, "Robin"), Hero(1, "Batman")))
+            binder.bean = Model(listOf(Hero(2, "Robin"), Hero(1, "Batman"), Hero(3, "Alfred")))
+
+            assertEquals(expected = listOf("*", "*"), actual = refreshes)
+        }
+
+        it("Should refresh nothing when nothing changed") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(listOf(Hero(1, "Batman")))
+            val grid = boundGrid(binder, keyed = false)
+            val refreshes = refreshes(grid)
+
+            binder.bean = Model(listOf(Hero(1, "Batman")))
+
+            assertTrue(refreshes.isEmpty())
+        }
+
+        it("Should handle null items") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(listOf(Hero(1, "Batman"), null))
+            val grid = boundGrid(binder, keyed = false)
+            val refreshes = refreshes(grid)
+
+            binder.bean = Model(listOf(Hero(1, "Batman"), null))
+            binder.bean = Model(listOf(null, Hero(1, "Batman")))
+
+            assertEquals(expected = listOf("*"), actual = refreshes)
+        }
+
+    }
+
+    describe("A bound grid in a session") {
+
+        data class Hero(val id: Int, val name: String) : Serializable
+        data class Model(val heros: List<Hero>, val sort: Comparator<Hero>, val filter: Predicate<Hero>) : Serializable
+
+        class ByName : Comparator<Hero>, Serializable {
+            override fun compare(first: Hero, second: Hero) = first.name.compareTo(second.name)
+        }
+
+        class NoBatman : Predicate<Hero>, Serializable {
+            override fun test(hero: Hero) = hero.name != "Batman"
+        }
+
+        it("Should be serializable with a key, a sort and a filter") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(listOf(Hero(1, "Batman"), Hero(2, "Robin")), ByName(), NoBatman())
+            val grid = BoundGrid.builder(binder, Hero::class.java)
+                    .withValueProvider { model -> model.heros }
+                    .withKey { hero -> hero.id }
+                    .withSortProvider { model -> model.sort }
+                    .withFilterProvider { model -> model.filter }
+                    .withMaxRefreshRate(5)
+                    .build()
+
+            ObjectOutputStream(ByteArrayOutputStream()).writeObject(grid)
+            ObjectOutputStream(ByteArrayOutputStream()).writeObject(binder)
+        }
+
+    }
+
+})
@@ -0,0 +1,140 @@
+package mvu.support.extra
+
+import com.vaadin.data.provider.DataProvider
+import com.vaadin.data.provider.Query
+import com.vaadin.ui.Grid
+import mvu.support.ModelBinder
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.util.concurrent.Executor
+import kotlin.streams.toList
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+object BoundLazyGridSpec : Spek({
+
+    describe("A lazy bound grid") {
+
+        data class Hero(val id: Int, val name: String)
+        data class HeroQuery(val filter: String, val version: Int = 0)
+        data class Model(val query: HeroQuery)
+
+        class Backend {
+            val fetches = ArrayList<String>()
+            val counts = ArrayList<String>()
+
+            fun fetch(query: HeroQuery, offset: Int, limit: Int): List<Hero> {
+                fetches.add("${query.filter}@$offset")
+                return (offset until Math.min(offset + limit, 100)).map { Hero(it, "${query.filter} $it") }
+            }
+
+            fun count(query: HeroQuery): Int {
+                counts.add(query.filter)
+                return 100
+            }
+        }
+
+        // The prefetches wait until the test runs them
+        class ManualExecutor : Executor {
+            val waiting = ArrayList<Runnable>()
+
+            override fun execute(command: Runnable) {
+                waiting.add(command)
+            }
+
+            fun runAll() {
+                val all = ArrayList(waiting)
+                waiting.clear()
+                all.forEach { it.run() }
+            }
+        }
+
+        fun lazyGrid(binder: ModelBinder<Model>, backend: Backend, prefetch: ManualExecutor) = BoundLazyGrid.builder<Model, HeroQuery, Hero>(binder, Hero::class.java)
+                .withQueryProvider { model -> model.query }
+                .withFetcher { query, offset, limit -> backend.fetch(query, offset, limit) }
+                .withCounter { query -> backend.count(query) }
+                .withPageSize(10)
+                .withPrefetch(1, prefetch)
+                .withReadOnlyBinding()
+                .build()
+
+        @Suppress("UNCHECKED_CAST")
+        fun rows(grid: Grid<Hero>, offset: Int, limit: Int): List<Hero> =
+                (grid.dataProvider as DataProvider<Hero, Void>).fetch(Query<Hero, Void>(offset, limit, emptyList(), null, null)).toList()
+
+        @Suppress("UNCHECKED_CAST")
+        fun size(grid: Grid<Hero>): Int = (grid.dataProvider as DataProvider<Hero, Void>).size(Query<Hero, Void>())
+
+        it("Should fetch a page once and read ahead the next one") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(HeroQuery("a"))
+            val backend = Backend()
+            val prefetch = ManualExecutor()
+            val grid = lazyGrid(binder, backend, prefetch)
+
+            assertEquals(expected = (0..4).map { Hero(it, "a $it") }, actual = rows(grid, 0, 5))
+            assertEquals(expected = (5..9).map { Hero(it, "a $it") }, actual = rows(grid, 5, 5))
+            prefetch.runAll()
+            assertEquals(expected = (10..14).map { Hero(it, "a $it") }, actual = rows(grid, 10, 5))
+
+            assertEquals(expected = listOf("a@0", "a@10"), actual = backend.fetches)
+        }
+
+        it("Should only count once per query") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(HeroQuery("a"))
+            val backend = Backend()
+            val grid = lazyGrid(binder, backend, ManualExecutor())
+
+            assertEquals(expected = 100, actual = size(grid))
+            assertEquals(expected = 100, actual = size(grid))
+            assertEquals(expected = listOf("a"), actual = backend.counts)
+
+            binder.bean = Model(HeroQuery("a", version = 1))
+            size(grid)
+            assertEquals(expected = listOf("a", "a"), actual = backend.counts)
+        }
+
+        it("Should drop the pages of a previous query, also the ones still loading") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(HeroQuery("a"))
+            val backend = Backend()
+            val prefetch = ManualExecutor()
+            val grid = lazyGrid(binder, backend, prefetch)
+            rows(grid, 0, 5)
+
+            binder.bean = Model(HeroQuery("b"))
+            // Read ahead of page 1 for query "a" ends after the query changed
+            prefetch.runAll()
+
+            assertEquals(expected = Hero(0, "b 0"), actual = rows(grid, 0, 5)[0])
+            assertEquals(expected = Hero(10, "b 10"), actual = rows(grid, 10, 5)[0])
+            assertEquals(expected = listOf("a@0", "a@10", "b@0", "b@10"), actual = backend.fetches)
+        }
+
+        it("Should read ahead again for a new query while a previous read ahead is still loading") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(HeroQuery("a"))
+            val backend = Backend()
+            val prefetch = ManualExecutor()
+            val grid = lazyGrid(binder, backend, prefetch)
+            rows(grid, 0, 5)
+
+            binder.bean = Model(HeroQuery("b"))
+            rows(grid, 0, 5)
+
+            assertEquals(expected = 2, actual = prefetch.waiting.size)
+        }
+
+        it("Should not offer sorting on the columns") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(HeroQuery("a"))
+            val grid = lazyGrid(binder, Backend(), ManualExecutor())
+
+            assertTrue(grid.columns.isNotEmpty())
+            assertTrue(grid.columns.none { it.isSortable })
+        }
+
+    }
+
+})
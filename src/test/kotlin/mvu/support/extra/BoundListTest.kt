@@ -0,0 +1,128 @@
+package mvu.support.extra
+
+import com.vaadin.data.Binder
+import com.vaadin.server.VaadinRequest
+import com.vaadin.ui.Component
+import com.vaadin.ui.Label
+import com.vaadin.util.CurrentInstance
+import io.mockk.mockk
+import mvu.support.Action
+import mvu.support.AsyncAction
+import mvu.support.AsyncActionResult
+import mvu.support.Dispatcher
+import mvu.support.ModelAndCmd
+import mvu.support.ModelBinder
+import mvu.support.TestSession
+import mvu.support.bindModelAndViewWithEffectsKt
+import mvu.support.emptyDispatcher
+import mvu.support.fromRight
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+
+object BoundListSpec : Spek({
+
+    describe("A bound list") {
+
+        data class Hero(val id: Int, val name: String)
+        data class Model(val heros: List<Hero>)
+
+        fun boundList(binder: ModelBinder<Model>, created: MutableList<Hero>) = BoundList.builder(binder, Hero::class.java)
+                .withValueProvider { model -> model.heros }
+                .withKey { hero -> hero.id }
+                .withChildView { hero ->
+                    created.add(hero)
+                    Label(hero.name)
+                }
+                .withReadOnlyBinding()
+                .build()
+
+        fun captions(layout: Iterable<Component>) = layout.map { (it as Label).value }
+
+        it("Should reuse the children of existing keys") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(listOf(Hero(1, "Batman"), Hero(2, "Robin"), Hero(3, "Alfred")))
+            val created = ArrayList<Hero>()
+            val layout = boundList(binder, created)
+            val robin = layout.getComponent(1)
+
+            binder.bean = Model(listOf(Hero(3, "Alfred"), Hero(2, "Robin"), Hero(4, "Joker")))
+
+            assertEquals(expected = listOf("Alfred", "Robin", "Joker"), actual = captions(layout))
+            assertSame(expected = robin, actual = layout.getComponent(1))
+            assertEquals(expected = listOf(Hero(1, "Batman"), Hero(2, "Robin"), Hero(3, "Alfred"), Hero(4, "Joker")), actual = created)
+        }
+
+        it("Should only recreate the children of changed items") {
+            val binder = ModelBinder<Model>()
+            binder.bean = Model(listOf(Hero(1, "Batman"), Hero(2, "Robin")))
+            val created = ArrayList<Hero>()
+            val layout = boundList(binder, created)
+
+            binder.bean = Model(listOf(Hero(1, "Batman"), Hero(2, "Nightwing")))
+
+            assertEquals(expected = listOf("Batman", "Nightwing"), actual = captions(layout))
+            assertEquals(expected = 3, actual = created.size)
+        }
+
+        it("Should keep the in-flight async work of a moved child") {
+            data class Card(val hero: Hero, val status: String = "new")
+            class Loading : Action
+            data class Loaded(val status: String) : Action
+            val released = CountDownLatch(1)
+            class Load : AsyncAction<Action, Action, Action> {
+                override val startAction: Action
+                    get() = Loading()
+
+                override fun <LEFTACTION, RIGHTACTION> perform(): AsyncActionResult<LEFTACTION, RIGHTACTION> {
+                    released.await(5, TimeUnit.SECONDS)
+                    @Suppress("UNCHECKED_CAST")
+                    return fromRight(Loaded("loaded") as RIGHTACTION)
+                }
+            }
+
+            val testSession = TestSession()
+            val cards = HashMap<Int, Binder<Card>>()
+            val dispatchers = HashMap<Int, Dispatcher>()
+            fun card(hero: Hero) = bindModelAndViewWithEffectsKt(emptyDispatcher(), Card(hero), { cardBinder: Binder<Card>, dispatcher: Dispatcher ->
+                cards[hero.id] = cardBinder
+                dispatchers[hero.id] = dispatcher
+                Label(hero.name)
+            }, { action: Action, card: Card ->
+                when (action) {
+                    is Loading -> ModelAndCmd.of(card.copy(status = "loading"))
+                    is Loaded -> ModelAndCmd.of(card.copy(status = action.status))
+                    else -> ModelAndCmd.of(card)
+                }
+            })
+
+            val binder = ModelBinder<Model>()
+            testSession.locked {
+                // Part of a client round trip
+                CurrentInstance.set(VaadinRequest::class.java, mockk(relaxed = true))
+                binder.bean = Model(listOf(Hero(1, "Batman"), Hero(2, "Robin")))
+                val layout = BoundList.builder(binder, Hero::class.java)
+                        .withValueProvider { model -> model.heros }
+                        .withKey { hero -> hero.id }
+                        .withChildView { hero -> card(hero) }
+                        .withReadOnlyBinding()
+                        .build()
+                // Attached through the mocked UI, so moving a child fires its detach and attach events
+                layout.parent = testSession.ui
+                dispatchers.getValue(2).dispatcher(Load())
+
+                binder.bean = Model(listOf(Hero(2, "Robin"), Hero(1, "Batman")))
+                CurrentInstance.set(VaadinRequest::class.java, null)
+            }
+            released.countDown()
+            testSession.runAccessesUntil { cards.getValue(2).bean.status == "loaded" }
+
+            assertEquals(expected = "loaded", actual = cards.getValue(2).bean.status)
+        }
+    }
+
+})
+
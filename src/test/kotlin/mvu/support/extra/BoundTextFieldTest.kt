@@ -0,0 +1,95 @@
+package mvu.support.extra
+
+import com.vaadin.shared.ui.ValueChangeMode
+import mvu.support.Action
+import mvu.support.Dispatcher
+import mvu.support.ModelBinder
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.util.Collections
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+
+object BoundTextFieldSpec : Spek({
+
+    describe("A bound text field") {
+
+        data class Model(val name: String)
+        data class NameChanged(val name: String) : Action
+
+        fun textField(dispatched: MutableList<Action>, configure: (BoundTextField.Builder<Model>) -> BoundTextField.Builder<Model>) =
+                ModelBinder<Model>().let { binder ->
+                    binder.bean = Model("")
+                    configure(BoundTextField.builder(binder)
+                            .withDispatcher(Dispatcher { dispatched.add(it) })
+                            .withValueProvider { it.name }
+                            .withValueConsumer { NameChanged(it) })
+                            .build()
+                }
+
+        it("Should let the client debounce and dispatch every value it sends right away") {
+            val dispatched = ArrayList<Action>()
+            val field = textField(dispatched) { it.withDebounce(300) }
+
+            field.value = "Bat"
+            field.value = "Batman"
+
+            assertEquals(ValueChangeMode.LAZY, field.valueChangeMode)
+            assertEquals(300, field.valueChangeTimeout)
+            assertEquals(listOf<Action>(NameChanged("Bat"), NameChanged("Batman")), dispatched)
+        }
+
+        it("Should let the client throttle") {
+            val dispatched = ArrayList<Action>()
+            val field = textField(dispatched) { it.withThrottle(500) }
+
+            field.value = "Robin"
+
+            assertEquals(ValueChangeMode.TIMEOUT, field.valueChangeMode)
+            assertEquals(500, field.valueChangeTimeout)
+            assertEquals(listOf<Action>(NameChanged("Robin")), dispatched)
+        }
+
+        fun awaitDispatched(dispatched: List<Action>, expected: List<Action>) {
+            val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+            while (synchronized(dispatched) { dispatched != expected }) {
+                if (System.nanoTime() > deadline) {
+                    throw AssertionError("Expected $expected but was $dispatched")
+                }
+                Thread.sleep(5)
+            }
+        }
+
+        it("Should coalesce a burst into one action with the latest value, when debouncing on the server") {
+            val dispatched = Collections.synchronizedList(ArrayList<Action>())
+            val field = textField(dispatched) { it.withDebounce(100).withServerCoalescing() }
+
+            field.value = "B"
+            field.value = "Bat"
+            field.value = "Batman"
+
+            assertEquals(emptyList<Action>(), dispatched)
+            awaitDispatched(dispatched, listOf<Action>(NameChanged("Batman")))
+        }
+
+        it("Should dispatch the first value right away and the latest one after the window, when throttling on the server") {
+            val dispatched = Collections.synchronizedList(ArrayList<Action>())
+            val field = textField(dispatched) { it.withThrottle(100).withServerCoalescing() }
+
+            field.value = "R"
+            field.value = "Ro"
+            field.value = "Robin"
+
+            assertEquals(listOf<Action>(NameChanged("R")), dispatched)
+            awaitDispatched(dispatched, listOf<Action>(NameChanged("R"), NameChanged("Robin")))
+        }
+
+        it("Should only send the value when the field loses focus") {
+            val field = textField(ArrayList()) { it.withCommitOnBlur() }
+
+            assertEquals(ValueChangeMode.BLUR, field.valueChangeMode)
+        }
+
+    }
+
+})
@@ -0,0 +1,156 @@
+package mvu.support.extra
+
+import com.vaadin.data.Binder
+import com.vaadin.server.ClientConnector
+import com.vaadin.ui.Button
+import com.vaadin.ui.HorizontalLayout
+import mvu.support.Action
+import mvu.support.AsyncAction
+import mvu.support.AsyncActionResult
+import mvu.support.Dispatcher
+import mvu.support.TestSession
+import mvu.support.bindModelAndViewKt
+import mvu.support.emptyDispatcher
+import mvu.support.fromRight
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+object DispatchButtonSpec : Spek({
+
+    describe("A dispatch button with an in flight guard") {
+
+        data class Model(val saved: Int = 0)
+        class Saved : Action
+
+        class Save(private val performed: AtomicInteger, private val release: Semaphore) : AsyncAction<Action?, Action, Action> {
+            override val startAction: Action?
+                get() = null
+
+            override fun <LEFTACTION, RIGHTACTION> perform(): AsyncActionResult<LEFTACTION, RIGHTACTION> {
+                performed.incrementAndGet()
+                release.acquire()
+                @Suppress("UNCHECKED_CAST")
+                return fromRight(Saved() as RIGHTACTION)
+            }
+        }
+
+        val update = { action: Action, model: Model -> if (action is Saved) model.copy(saved = model.saved + 1) else model }
+
+        class Form(val testSession: TestSession, policy: DispatchButton.InFlightPolicy) {
+            val performed = AtomicInteger()
+            val release = Semaphore(0)
+            val layout = DetachableLayout()
+            var binder: Binder<Model>? = null
+            var button: Button? = null
+
+            init {
+                testSession.locked {
+                    bindModelAndViewKt(emptyDispatcher(), Model(), { viewBinder: Binder<Model>, viewDispatcher: Dispatcher ->
+                        binder = viewBinder
+                        button = DispatchButton.builder(viewDispatcher)
+                                .withAction { Save(performed, release) }
+                                .withInFlightGuard(policy, true)
+                                .build()
+                        layout
+                    }, update)
+                }
+            }
+
+            val saved: Int
+                get() = binder!!.bean.saved
+
+            fun click() {
+                // Button#click ignores disabled buttons, like the client would
+                testSession.locked { button!!.click() }
+            }
+
+            fun awaitPerformed(count: Int) {
+                val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+                while (performed.get() < count) {
+                    if (System.nanoTime() > deadline) {
+                        throw AssertionError("Not performed $count times within 5 seconds")
+                    }
+                    Thread.sleep(5)
+                }
+            }
+        }
+
+        it("Should ignore the clicks while the work of the first one is running") {
+            val form = Form(TestSession(), DispatchButton.InFlightPolicy.IGNORE)
+
+            form.click()
+            form.awaitPerformed(1)
+            assertFalse(form.button!!.isEnabled)
+            form.button!!.isEnabled = true
+            form.click()
+            form.click()
+            form.release.release()
+            form.testSession.runAccessesUntil { form.saved == 1 }
+
+            assertTrue(form.button!!.isEnabled)
+            assertEquals(1, form.performed.get())
+            form.click()
+            form.awaitPerformed(2)
+            form.release.release()
+            form.testSession.runAccessesUntil { form.saved == 2 }
+        }
+
+        it("Should dispatch once more for the clicks while the work of the first one was running") {
+            val form = Form(TestSession(), DispatchButton.InFlightPolicy.COALESCE)
+
+            form.click()
+            form.awaitPerformed(1)
+            form.button!!.isEnabled = true
+            form.click()
+            form.click()
+            form.release.release(2)
+            form.testSession.runAccessesUntil { form.saved == 2 }
+
+            assertEquals(2, form.performed.get())
+            assertTrue(form.button!!.isEnabled)
+        }
+
+        it("Should release the guard when the component is detached while the work is running") {
+            val form = Form(TestSession(), DispatchButton.InFlightPolicy.IGNORE)
+
+            form.click()
+            form.awaitPerformed(1)
+            form.testSession.locked { form.layout.simulateDetach() }
+            form.release.release()
+            form.testSession.runAccessesUntil { form.button!!.isEnabled }
+
+            assertEquals(0, form.saved)
+        }
+
+        it("Should release the guard when the result is dropped from the mailbox of a detached component") {
+            val form = Form(TestSession(), DispatchButton.InFlightPolicy.IGNORE)
+
+            form.click()
+            form.awaitPerformed(1)
+            form.release.release()
+            // The result waits in the mailbox for the scheduler
+            form.testSession.awaitAccess()
+            form.testSession.locked { form.layout.simulateDetach() }
+            form.testSession.runAccessesUntil { form.button!!.isEnabled }
+
+            assertEquals(0, form.saved)
+        }
+
+    }
+
+})
+
+/**
+ * Layout which can fire a detach event without being part of a real UI.
+ */
+private class DetachableLayout : HorizontalLayout() {
+    fun simulateDetach() {
+        fireEvent(ClientConnector.DetachEvent(this))
+    }
+}
@@ -0,0 +1,175 @@
+package mvu.support.extra
+
+import com.sun.net.httpserver.HttpServer
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.net.InetSocketAddress
+import java.nio.CharBuffer
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+object HttpFetchSpec : Spek({
+
+    describe("StreamDecoder") {
+
+        fun <T> decode(decoder: StreamDecoder<T>, vararg chunks: String): T {
+            val decoding = decoder.start()
+            chunks.forEach { decoding.feed(CharBuffer.wrap(it)) }
+            return decoding.finish()
+        }
+
+        it("Should decode delimited items and skip line breaks and empty items") {
+            val decoder = StreamDecoder.delimited(',') { it.toUpperCase() }
+
+            assertEquals(listOf("AB", "CD", "E"), decode(decoder, "a\nb,,cd,e\r\n"))
+        }
+
+        it("Should decode items which are split over chunks") {
+            val decoder = StreamDecoder.delimited(',') { it }
+
+            assertEquals(listOf("Steve Wozniak", "Evan Czaplicki"), decode(decoder, "Steve Woz", "niak,Evan", " Czaplicki"))
+        }
+
+        it("Should start a fresh decoding for every body") {
+            val decoder = StreamDecoder.delimited(',') { it }
+
+            decode(decoder, "one,two")
+            assertEquals(listOf("three"), decode(decoder, "three"))
+        }
+
+    }
+
+    describe("HttpFetch") {
+
+        val slowResponse = CountDownLatch(1)
+        val server by memoized(
+                factory = {
+                    HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0).apply {
+                        createContext("/items") { exchange ->
+                            val body = "one,two,three".toByteArray()
+                            exchange.sendResponseHeaders(200, body.size.toLong())
+                            exchange.responseBody.use { it.write(body) }
+                        }
+                        createContext("/versioned") { exchange ->
+                            exchange.responseHeaders.add("ETag", "\"v1\"")
+                            if (exchange.requestHeaders.getFirst("If-None-Match") == "\"v1\"") {
+                                exchange.sendResponseHeaders(304, -1)
+                                exchange.close()
+                            } else {
+                                val body = "one,two".toByteArray()
+                                exchange.sendResponseHeaders(200, body.size.toLong())
+                                exchange.responseBody.use { it.write(body) }
+                            }
+                        }
+                        createContext("/split") { exchange ->
+                            // "é" is split over two chunks of the body
+                            val body = "café,thé".toByteArray(StandardCharsets.UTF_8)
+                            exchange.responseHeaders.add("Content-Type", "text/plain; charset=UTF-8")
+                            exchange.sendResponseHeaders(200, 0)
+                            exchange.responseBody.use {
+                                it.write(body, 0, 4)
+                                it.flush()
+                                Thread.sleep(50)
+                                it.write(body, 4, body.size - 4)
+                            }
+                        }
+                        createContext("/slow") { exchange ->
+                            slowResponse.await(10, TimeUnit.SECONDS)
+                            exchange.sendResponseHeaders(200, -1)
+                            exchange.close()
+                        }
+                        createContext("/broken") { exchange ->
+                            val body = "It just happened...".toByteArray()
+                            exchange.sendResponseHeaders(500, body.size.toLong())
+                            exchange.responseBody.use { it.write(body) }
+                        }
+                        start()
+                    }
+                },
+                destructor = { it.stop(0) })
+        val fetch = HttpFetch.builder(StreamDecoder.delimited(',') { it }).build()
+
+        fun url(path: String) = "http://127.0.0.1:${server.address.port}$path"
+
+        it("Should return the decoded body as Right") {
+            val result = fetch.get(url("/items"))
+
+            assertTrue(result.isRight)
+            assertEquals(listOf("one", "two", "three"), result.right())
+        }
+
+        it("Should return the status and error body as Left") {
+            val result = fetch.get(url("/broken"))
+
+            assertTrue(result.isLeft)
+            assertEquals(500, result.left().status)
+            assertEquals("Status 500: It just happened...", result.left().message)
+        }
+
+        it("Should decode characters which are split over two chunks") {
+            val result = fetch.get(url("/split"))
+
+            assertEquals(listOf("café", "thé"), result.right())
+        }
+
+        it("Should return a failing decoder as Left") {
+            val failingFetch = HttpFetch.builder(StreamDecoder.delimited(',') { item ->
+                if (item == "two") throw IllegalArgumentException("Not a number: $item") else item
+            }).build()
+
+            val result = failingFetch.get(url("/items"))
+
+            assertTrue(result.isLeft)
+            assertEquals(200, result.left().status)
+            assertEquals("Not a number: two", result.left().message)
+        }
+
+        it("Should not wait for the response with getAsync") {
+            val result = fetch.getAsync(url("/items"))
+
+            assertEquals(listOf("one", "two", "three"), result.get(5, TimeUnit.SECONDS).right())
+        }
+
+        it("Should stop waiting when the thread is interrupted (the AsyncAction is cancelled)") {
+            val caller = Thread.currentThread()
+            val interrupter = Thread {
+                Thread.sleep(200)
+                caller.interrupt()
+            }
+            interrupter.start()
+
+            val start = System.nanoTime()
+            val result = fetch.get(url("/slow"))
+
+            assertTrue(Thread.interrupted())
+            assertTrue(result.isLeft)
+            assertEquals(HttpFetch.Failure.NO_RESPONSE, result.left().status)
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5)
+            slowResponse.countDown()
+        }
+
+        it("Should map the result to actions") {
+            val result = fetch.get(url("/items"), { "failed" }, { it.size })
+
+            assertEquals(3, result.right())
+        }
+
+        it("Should revalidate a cached body and return it when it did not change") {
+            val cachingFetch = HttpFetch.builder(StreamDecoder.delimited(',') { it })
+                    .withRevalidationCache(4)
+                    .build()
+
+            val first = cachingFetch.get(url("/versioned"))
+            val second = cachingFetch.get(url("/versioned"))
+
+            assertSame(first.right(), second.right())
+            assertEquals("unchanged", cachingFetch.get(url("/versioned"), { "failed" }, { "changed" }, { "unchanged" }).right())
+        }
+
+    }
+
+})
@@ -0,0 +1,59 @@
+package mvu.support.extra
+
+import com.vaadin.server.SerializableConsumer
+import com.vaadin.server.SerializableFunction
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import java.util.Comparator
+import java.util.concurrent.Executor
+import java.util.function.Predicate
+import kotlin.test.assertEquals
+
+object SortedFilteredItemsSpec : Spek({
+
+    describe("A sorted and filtered view") {
+
+        data class Hero(val id: Int, val name: String)
+
+        val byName = Comparator.comparing<Hero, String> { it.name }
+        val noBatman = Predicate<Hero> { it.name != "Batman" }
+        val sameThread = Executor { it.run() }
+
+        it("Should keep the view sorted and filtered when rows change") {
+            var view: List<Hero> = emptyList()
+            val items = SortedFilteredItems<Hero>(SerializableFunction<Hero, Int> { it.id }, SerializableConsumer { view = ArrayList(it) }, sameThread, null)
+
+            items.update(SortedFilteredItems.Source(listOf(Hero(1, "Robin"), Hero(2, "Batman"), Hero(3, "Alfred")), byName, noBatman))
+            assertEquals(expected = listOf("Alfred", "Robin"), actual = view.map { it.name })
+
+            items.update(SortedFilteredItems.Source(listOf(Hero(1, "Nightwing"), Hero(2, "Batman"), Hero(4, "Joker")), byName, noBatman))
+            assertEquals(expected = listOf("Joker", "Nightwing"), actual = view.map { it.name })
+        }
+
+        it("Should only filter the changed rows again when there is no sort, keeping the order of the items") {
+            var view: List<Hero> = emptyList()
+            val tested = ArrayList<Hero>()
+            val countingFilter = Predicate<Hero> { hero -> tested.add(hero); noBatman.test(hero) }
+            val items = SortedFilteredItems<Hero>(SerializableFunction<Hero, Int> { it.id }, SerializableConsumer { view = ArrayList(it) }, sameThread, null)
+
+            items.update(SortedFilteredItems.Source(listOf(Hero(1, "Robin"), Hero(2, "Batman"), Hero(3, "Alfred")), null, countingFilter))
+            assertEquals(expected = listOf("Robin", "Alfred"), actual = view.map { it.name })
+
+            tested.clear()
+            items.update(SortedFilteredItems.Source(listOf(Hero(4, "Joker"), Hero(1, "Robin"), Hero(2, "Batman"), Hero(3, "Oracle")), null, countingFilter))
+            assertEquals(expected = listOf("Joker", "Robin", "Oracle"), actual = view.map { it.name })
+            assertEquals(expected = listOf("Joker", "Oracle"), actual = tested.map { it.name })
+        }
+
+        it("Should accept null items") {
+            var view: List<String?> = emptyList()
+            val items = SortedFilteredItems<String?>(null, SerializableConsumer { view = ArrayList(it) }, sameThread, null)
+
+            items.update(SortedFilteredItems.Source(listOf("Robin", null), null, null))
+            items.update(SortedFilteredItems.Source(listOf(null, "Alfred"), null, null))
+
+            assertEquals(expected = listOf(null, "Alfred"), actual = view)
+        }
+    }
+
+})
@@ -0,0 +1,71 @@
+package mvu.support.extra
+
+import com.vaadin.data.ValueContext
+import org.spekframework.spek2.Spek
+import org.spekframework.spek2.style.specification.describe
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+object ValidatorsSpec : Spek({
+
+    describe("Validators") {
+
+        val valueContext = ValueContext()
+
+        it("Should accept whole numbers within the integer range only") {
+            val integer = Validators.integer()
+
+            listOf("0", "-12", "+7", "2147483647", "-2147483648", "").forEach {
+                assertFalse(integer.apply(it, valueContext).isError, it)
+            }
+            listOf("-", "12a", "2147483648", "1.5", " 1").forEach {
+                assertTrue(integer.apply(it, valueContext).isError, it)
+            }
+        }
+
+        it("Should name the input in the message of the integer validator") {
+            val integer = IntegerValidator()
+
+            assertFalse(integer.apply("42", valueContext).isError)
+            assertEquals("Cannot convert 12a into an integer", integer.apply("12a", valueContext).errorMessage)
+        }
+
+        it("Should accept the whole long range") {
+            val longNumber = Validators.longNumber()
+
+            assertFalse(longNumber.apply("-9223372036854775808", valueContext).isError)
+            assertTrue(longNumber.apply("9223372036854775808", valueContext).isError)
+        }
+
+        it("Should accept decimals") {
+            val decimal = Validators.decimal()
+
+            listOf("1", "-12.50", "1e3", "2.5E-4").forEach {
+                assertFalse(decimal.apply(it, valueContext).isError, it)
+            }
+            listOf(".5", "5.", "1e", "1.2.3").forEach {
+                assertTrue(decimal.apply(it, valueContext).isError, it)
+            }
+        }
+
+        it("Should return the same error instance every time") {
+            val range = Validators.range(0, 150)
+
+            assertSame(expected = range.apply("151", valueContext), actual = range.apply("abc", valueContext))
+        }
+
+        it("Should report the first error of a pipeline") {
+            val age = Validators.pipeline(
+                    Validators.length(1, 3, "Please enter your age"),
+                    Validators.range(0, 150, "Please enter an age between 0 and 150"))
+
+            assertTrue(age.apply("", valueContext).isError)
+            assertTrue(age.apply("151", valueContext).isError)
+            assertFalse(age.apply("42", valueContext).isError)
+            assertTrue(Validators.pattern("[A-Z]+", "Capitals only").apply("abc", valueContext).isError)
+        }
+    }
+
+})